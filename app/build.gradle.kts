@@ -32,9 +32,6 @@ android {
         manifestPlaceholders["MAPS_API_KEY"] = localProps.getProperty("MAPS_API_KEY") ?: ""
         manifestPlaceholders["facebook_app_id"] = localProps.getProperty("facebookAppId") ?: ""
         manifestPlaceholders["facebook_client_token"] = localProps.getProperty("facebookClientToken") ?: ""
-
-        // BuildConfig: Cloud Function URL for sending messages (HTTP v1)
-        buildConfigField("String", "FCM_FUNCTION_URL", "\"https://us-central1-kh-stay.cloudfunctions.net/sendNotification\"")
     }
 
     buildTypes {
@@ -45,10 +42,6 @@ android {
                 "proguard-rules.pro"
             )
         }
-        debug {
-            // If you ever need a different function URL for debug, you can override here:
-            // buildConfigField("String", "FCM_FUNCTION_URL", "\"https://us-central1-kh-stay.cloudfunctions.net/sendNotification\"")
-        }
     }
 
     compileOptions {
@@ -72,7 +65,7 @@ dependencies {
     implementation("com.google.firebase:firebase-storage")
     implementation("com.google.firebase:firebase-messaging:23.4.0") // OK to pin if needed
 
-    // OkHttp for calling your Cloud Function (HTTP v1)
+    // OkHttp, shared with Glide through HttpClientProvider
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
 
     // ViewPager2 for image slider
@@ -94,6 +87,8 @@ dependencies {
     implementation("com.facebook.shimmer:shimmer:0.5.0")
     implementation("com.github.bumptech.glide:glide:4.16.0")
     annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
+    // Route Glide downloads through the app's shared OkHttp client
+    implementation("com.github.bumptech.glide:okhttp3-integration:4.16.0")
 
     // Navigation
     implementation(libs.navigation.fragment)
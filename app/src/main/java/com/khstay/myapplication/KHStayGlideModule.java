@@ -1,7 +1,137 @@
 package com.khstay.myapplication;
 
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
 import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.khstay.myapplication.utils.HttpClientProvider;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * App-wide Glide configuration: caches sized from the device heap, image
+ * downloads through the shared OkHttp client, and cache hit/miss counters.
+ */
 @GlideModule
-public final class KHStayGlideModule extends AppGlideModule {}
+public final class KHStayGlideModule extends AppGlideModule {
+
+    private static final String TAG = "KHStayGlideModule";
+    private static final String DISK_CACHE_NAME = "image_cache";
+    private static final long DISK_CACHE_BYTES = 250L * 1024 * 1024;
+
+    /**
+     * Options for opaque list/card thumbnails: RGB_565 halves bitmap memory.
+     * Don't use for images that need transparency (e.g. circle-cropped avatars).
+     */
+    public static final RequestOptions CARD_THUMBNAIL =
+            RequestOptions.formatOf(DecodeFormat.PREFER_RGB_565);
+
+    // Where finished loads came from, for Settings / debugging
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong diskHits = new AtomicLong();
+    private static final AtomicLong networkLoads = new AtomicLong();
+    private static final AtomicLong failedLoads = new AtomicLong();
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = am != null ? am.getMemoryClass() : 64;
+        boolean lowRam = am != null && am.isLowRamDevice();
+
+        // e.g. 256MB heap -> 32MB memory cache + 25MB bitmap pool (half that on low-RAM devices)
+        long heapBytes = memoryClassMb * 1024L * 1024L;
+        long memoryCacheBytes = heapBytes / (lowRam ? 16 : 8);
+        long bitmapPoolBytes = heapBytes / (lowRam ? 20 : 10);
+
+        builder.setMemoryCache(new LruResourceCache(memoryCacheBytes));
+        builder.setBitmapPool(new LruBitmapPool(bitmapPoolBytes));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, DISK_CACHE_BYTES));
+        builder.addGlobalRequestListener(new CacheStatsListener());
+        builder.setLogLevel(Log.ERROR);
+
+        Log.d(TAG, "memoryClass=" + memoryClassMb + "MB, memoryCache=" + memoryCacheBytes
+                + ", bitmapPool=" + bitmapPoolBytes + ", lowRam=" + lowRam);
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(HttpClientProvider.get()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+
+    public static long getMemoryHits() { return memoryHits.get(); }
+    public static long getDiskHits() { return diskHits.get(); }
+    public static long getNetworkLoads() { return networkLoads.get(); }
+    public static long getFailedLoads() { return failedLoads.get(); }
+
+    /** e.g. "memory=120 disk=34 network=12 failed=1" */
+    public static String getCacheStats() {
+        return "memory=" + memoryHits.get()
+                + " disk=" + diskHits.get()
+                + " network=" + networkLoads.get()
+                + " failed=" + failedLoads.get();
+    }
+
+    public static void resetCacheStats() {
+        memoryHits.set(0);
+        diskHits.set(0);
+        networkLoads.set(0);
+        failedLoads.set(0);
+    }
+
+    private static class CacheStatsListener implements RequestListener<Object> {
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                    @NonNull Target<Object> target, boolean isFirstResource) {
+            failedLoads.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull Object resource, @NonNull Object model,
+                                       Target<Object> target, @NonNull DataSource dataSource,
+                                       boolean isFirstResource) {
+            switch (dataSource) {
+                case MEMORY_CACHE:
+                    memoryHits.incrementAndGet();
+                    break;
+                case RESOURCE_DISK_CACHE:
+                case DATA_DISK_CACHE:
+                    diskHits.incrementAndGet();
+                    break;
+                case REMOTE:
+                    networkLoads.incrementAndGet();
+                    break;
+                default:
+                    // LOCAL (resources, content URIs) isn't a cache question
+                    break;
+            }
+            return false;
+        }
+    }
+}
@@ -23,9 +23,9 @@ import androidx.fragment.app.Fragment;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.messaging.FirebaseMessaging;
+import com.khstay.myapplication.data.firebase.ChatService;
 import com.khstay.myapplication.data.firebase.NotificationService;
 import com.khstay.myapplication.ui.auth.LoginActivity;
 import com.khstay.myapplication.ui.chat.ConversationsActivity;
@@ -33,6 +33,7 @@ import com.khstay.myapplication.ui.home.HomeFragment;
 import com.khstay.myapplication.ui.profile.ProfileFragment;
 import com.khstay.myapplication.ui.rental.MyRentFragment;
 import com.khstay.myapplication.ui.search.SearchFragment;
+import com.khstay.myapplication.utils.FcmTokenManager;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -42,6 +43,8 @@ public class MainActivity extends AppCompatActivity {
     private NotificationService.ChatService chatService;
     private TextView tvMessageBadge;
     private ListenerRegistration unreadCountListener;
+    private int unreadMessageCount = 0;
+    private boolean unreadCounterSeeded = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -98,31 +101,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void ensureFcmTokenSaved() {
-        FirebaseMessaging.getInstance().getToken()
-                .addOnSuccessListener(token -> {
-                    Log.d(TAG, "FCM Token (ensure saved): " + token);
-                    var user = FirebaseAuth.getInstance().getCurrentUser();
-                    if (user == null || token == null) return;
-                    String uid = user.getUid();
-
-                    FirebaseFirestore.getInstance().collection("users").document(uid)
-                            .get().addOnSuccessListener(doc -> {
-                                String current = doc.getString("fcmToken");
-                                if (current == null || !current.equals(token)) {
-                                    FirebaseFirestore.getInstance().collection("users").document(uid)
-                                            .update("fcmToken", token)
-                                            .addOnSuccessListener(aVoid -> Log.d(TAG, "FCM token saved/updated"))
-                                            .addOnFailureListener(e -> Log.e(TAG, "Failed to save FCM token", e));
-
-                                    // Optional: tokens/{token}.uid index
-                                    FirebaseFirestore.getInstance().collection("tokens").document(token)
-                                            .set(java.util.Collections.singletonMap("uid", uid));
-                                } else {
-                                    Log.d(TAG, "FCM token unchanged; skip write");
-                                }
-                            });
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "getToken failed", e));
+        FcmTokenManager.syncCurrentToken(this);
     }
 
     private void requestNotificationPermission() {
@@ -194,7 +173,7 @@ public class MainActivity extends AppCompatActivity {
 
         } else if (id == R.id.action_sign_out) {
             // 1) Clear token in Firestore so pushes stop targeting this UID
-            com.khstay.myapplication.utils.FcmTokenManager.clearTokenForCurrentUser();
+            FcmTokenManager.clearTokenForCurrentUser(this);
 
             // 2) Delete the local FCM token (forces new token next login)
             FirebaseMessaging.getInstance().deleteToken()
@@ -216,29 +195,49 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
-    private void listenToUnreadCount() { updateUnreadBadge(); }
-
-    private void updateUnreadBadge() {
-        chatService.getTotalUnreadCount()
-                .addOnSuccessListener(count -> {
-                    if (tvMessageBadge != null) {
-                        if (count > 0) {
-                            tvMessageBadge.setVisibility(View.VISIBLE);
-                            tvMessageBadge.setText(count > 99 ? "99+" : String.valueOf(count));
-                        } else {
-                            tvMessageBadge.setVisibility(View.GONE);
+    private void listenToUnreadCount() {
+        if (unreadCountListener != null) {
+            // Menu was re-created; redraw the new badge view from the last value
+            showUnreadBadge(unreadMessageCount);
+            return;
+        }
+        if (auth.getCurrentUser() == null) return;
+
+        unreadCountListener = chatService.getTotalUnreadCounter()
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.w(TAG, "Unread count listen failed", error);
+                        return;
+                    }
+                    if (snapshot == null) return;
+
+                    Long total = snapshot.getLong(ChatService.TOTAL_UNREAD_FIELD);
+                    boolean seeded = Boolean.TRUE.equals(snapshot.getBoolean(ChatService.SEEDED_FIELD));
+                    if (!seeded || total == null || total < 0) {
+                        // Never counted from the conversations (the document may exist from
+                        // senders' increments alone), or drifted: recount once per session
+                        if (!unreadCounterSeeded) {
+                            unreadCounterSeeded = true;
+                            chatService.rebuildTotalUnreadCount()
+                                    .addOnFailureListener(e -> Log.e(TAG, "Failed to seed unread count", e));
                         }
+                        return;
                     }
-                })
-                .addOnFailureListener(e -> {
-                    // Silent
+
+                    unreadMessageCount = total.intValue();
+                    showUnreadBadge(unreadMessageCount);
                 });
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        updateUnreadBadge();
+    private void showUnreadBadge(int count) {
+        if (tvMessageBadge != null) {
+            if (count > 0) {
+                tvMessageBadge.setVisibility(View.VISIBLE);
+                tvMessageBadge.setText(count > 99 ? "99+" : String.valueOf(count));
+            } else {
+                tvMessageBadge.setVisibility(View.GONE);
+            }
+        }
     }
 
     private boolean loadFragment(Fragment fragment) {
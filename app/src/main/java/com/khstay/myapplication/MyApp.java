@@ -10,10 +10,17 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.appcheck.FirebaseAppCheck;
 import com.google.firebase.appcheck.debug.DebugAppCheckProviderFactory;
 import com.google.firebase.appcheck.playintegrity.PlayIntegrityAppCheckProviderFactory;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
 import com.google.firebase.storage.FirebaseStorage;
+import com.khstay.myapplication.utils.PopularityScoreHelper;
 
 public class MyApp extends Application {
 
+    // On-disk Firestore cache; rental lists and details are read from it first (see CacheFirstReader)
+    private static final long FIRESTORE_CACHE_BYTES = 64L * 1024 * 1024;
+
     private static MyApp instance;
 
     @Override
@@ -25,6 +32,14 @@ public class MyApp extends Application {
 
         FirebaseApp.initializeApp(this);
 
+        // Must run before any other Firestore call in the process
+        FirebaseFirestore.getInstance().setFirestoreSettings(
+                new FirebaseFirestoreSettings.Builder()
+                        .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                                .setSizeBytes(FIRESTORE_CACHE_BYTES)
+                                .build())
+                        .build());
+
         boolean isDebug = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
         FirebaseAppCheck appCheck = FirebaseAppCheck.getInstance();
         appCheck.installAppCheckProviderFactory(
@@ -41,6 +56,15 @@ public class MyApp extends Application {
         Log.d("Storage", "Override bucket via SDK: " + storageForKhStay.getReference().getBucket());
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // App went to the background: write buffered popularity events before the process may die
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            PopularityScoreHelper.flush();
+        }
+    }
+
     /** Get the Application singleton */
     public static MyApp get() {
         return instance;
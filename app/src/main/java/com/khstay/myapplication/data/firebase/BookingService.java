@@ -6,11 +6,27 @@ import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.khstay.myapplication.ui.rental.model.BookingRequest;
+import com.khstay.myapplication.ui.rental.model.RentalAvailability;
+import com.khstay.myapplication.utils.BookingCalendar;
 import com.khstay.myapplication.utils.PopularityScoreHelper;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class BookingService {
@@ -25,7 +41,10 @@ public class BookingService {
     }
 
     /**
-     * Create booking with notification to owner (and track booking count)
+     * Create booking; the owner is notified by the onBookingCreated function.
+     * The booking is written in one transaction with the rental's availability
+     * index, so a stay overlapping a pending or approved booking is rejected at
+     * write time by reading only the month documents the stay covers.
      */
     public Task<DocumentReference> createBookingWithNotification(Map<String, Object> booking) {
         String rentalId = (String) booking.get("rentalId");
@@ -33,281 +52,217 @@ public class BookingService {
             return Tasks.forException(new IllegalArgumentException("rentalId is required"));
         }
 
-        return db.collection("rental_houses")
-                .document(rentalId)
-                .get()
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) throw task.getException();
-                    var rentalDoc = task.getResult();
+        Object checkIn = booking.get("checkInDate");
+        Object checkOut = booking.get("checkOutDate");
+        if (!(checkIn instanceof Timestamp) || !(checkOut instanceof Timestamp)) {
+            return Tasks.forException(new IllegalArgumentException("checkInDate and checkOutDate are required"));
+        }
+
+        Date checkInDate = ((Timestamp) checkIn).toDate();
+        Date checkOutDate = ((Timestamp) checkOut).toDate();
+        long nights = BookingCalendar.nightCount(checkInDate, checkOutDate);
+        if (nights <= 0) {
+            return Tasks.forException(new IllegalArgumentException("Check-out must be after check-in"));
+        }
+        if (nights > BookingCalendar.MAX_NIGHTS) {
+            return Tasks.forException(new IllegalArgumentException(
+                    "Stays are limited to " + BookingCalendar.MAX_NIGHTS + " nights"));
+        }
+        Map<String, List<String>> nightsByMonth = BookingCalendar.nightsByMonth(checkInDate, checkOutDate);
+
+        String userId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
+        if (userId == null) {
+            return Tasks.forException(new Exception("User not authenticated"));
+        }
+
+        DocumentReference rentalRef = db.collection("rental_houses").document(rentalId);
+        DocumentReference bookingRef = db.collection("bookings").document();
+
+        return db.runTransaction(transaction -> {
+                    // All reads first: the rental and each month the stay touches
+                    DocumentSnapshot rentalDoc = transaction.get(rentalRef);
                     if (!rentalDoc.exists()) {
-                        throw new Exception("Rental not found");
+                        throw new IllegalStateException("Rental not found");
                     }
 
                     String ownerId = rentalDoc.getString("ownerId");
                     if (ownerId == null) {
-                        throw new Exception("Owner ID not found in rental document");
+                        throw new IllegalStateException("Owner ID not found in rental document");
                     }
 
-                    String userId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
-                    if (userId == null) {
-                        throw new Exception("User not authenticated");
+                    Map<String, DocumentSnapshot> months = new HashMap<>();
+                    for (String month : nightsByMonth.keySet()) {
+                        months.put(month, transaction.get(availabilityRef(rentalId, month)));
+                    }
+
+                    for (Map.Entry<String, List<String>> entry : nightsByMonth.entrySet()) {
+                        Map<String, Object> booked = bookedDays(months.get(entry.getKey()));
+                        for (String day : entry.getValue()) {
+                            if (booked.containsKey(day)) {
+                                throw new IllegalStateException("Selected dates are no longer available");
+                            }
+                        }
                     }
 
                     booking.put("ownerId", ownerId);
                     booking.put("userId", userId);
-
-                    return db.collection("bookings").add(booking);
-                })
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) throw task.getException();
-                    DocumentReference bookingRef = task.getResult();
-
-                    String ownerId = (String) booking.get("ownerId");
-                    String guestName = (String) booking.get("guestName");
-                    String rentalTitle = (String) booking.get("rentalTitle");
-
-                    Map<String, Object> notification = new HashMap<>();
-                    notification.put("receiverId", ownerId);
-                    notification.put("senderId", auth.getCurrentUser().getUid());
-                    notification.put("title", "New Booking Request");
-                    notification.put("message", guestName + " wants to book your property: " + rentalTitle);
-                    notification.put("type", "booking_request");
-                    notification.put("bookingId", bookingRef.getId());
-                    notification.put("rentalId", booking.get("rentalId"));
-                    notification.put("timestamp", Timestamp.now());
-                    notification.put("read", false);
-
-                    return db.collection("users")
-                            .document(ownerId)
-                            .collection("notifications")
-                            .add(notification)
-                            .continueWith(notifTask -> {
-                                // Don't fail the booking if notification fails
-                                if (!notifTask.isSuccessful()) {
-                                    Log.e(TAG, "Failed to send notification", notifTask.getException());
-                                }
-                                return bookingRef;
-                            });
+                    transaction.set(bookingRef, booking);
+
+                    // Claim every night for this booking
+                    for (Map.Entry<String, List<String>> entry : nightsByMonth.entrySet()) {
+                        Map<String, Object> days = new HashMap<>();
+                        for (String day : entry.getValue()) {
+                            days.put(day, bookingRef.getId());
+                        }
+                        transaction.set(availabilityRef(rentalId, entry.getKey()),
+                                Collections.singletonMap(BookingCalendar.DAYS_FIELD, days),
+                                SetOptions.merge());
+                    }
+                    return bookingRef;
                 });
     }
 
     /**
-     * Update booking status (simple version - no notification)
+     * Approve or reject a booking (owner side). The guest is notified by the
+     * onBookingStatusChanged function.
+     * One transaction commits the booking status, rental status, booking-count
+     * delta and released nights together.
      */
-    public Task<Void> updateBookingStatus(String bookingId, String newStatus) {
-        return db.collection("bookings")
-                .document(bookingId)
-                .get()
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) throw task.getException();
-
-                    var bookingDoc = task.getResult();
-                    if (!bookingDoc.exists()) {
-                        throw new Exception("Booking not found");
-                    }
-
-                    String oldStatus = bookingDoc.getString("status");
-                    String rentalId = bookingDoc.getString("rentalId");
+    public Task<Void> updateBookingStatus(BookingRequest booking, String newStatus) {
+        return commitStatusChange(booking, newStatus);
+    }
 
-                    // Update status
-                    Map<String, Object> updates = new HashMap<>();
-                    updates.put("status", newStatus);
-                    updates.put("updatedAt", Timestamp.now());
-
-                    return db.collection("bookings")
-                            .document(bookingId)
-                            .update(updates)
-                            .continueWithTask(updateTask -> {
-                                if (!updateTask.isSuccessful()) {
-                                    throw updateTask.getException();
-                                }
-
-                                // NEW: Track booking count for popularity score
-                                // Only increment when status changes to "approved" for the first time
-                                if ("approved".equals(newStatus) &&
-                                        !"approved".equals(oldStatus) &&
-                                        rentalId != null) {
-                                    PopularityScoreHelper.incrementBookingCount(rentalId);
-                                }
-
-                                return Tasks.forResult(null);
-                            });
-                });
+    /**
+     * Cancel booking (by renter/guest) - updates status to "cancelled"; the owner
+     * is notified server-side, as for an owner status change
+     */
+    public Task<Void> cancelBooking(BookingRequest booking) {
+        return commitStatusChange(booking, "cancelled");
     }
 
     /**
-     * Update booking status WITH notification to guest
+     * Build and commit every write a status change implies. The booking is
+     * re-read inside the transaction, so the previous status and the stay come
+     * from the server copy rather than the caller's possibly stale listener.
      */
-    public Task<Void> updateBookingStatus(String bookingId, String newStatus,
-                                          String guestUserId, String rentalTitle) {
-        return db.collection("bookings")
-                .document(bookingId)
-                .get()
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) throw task.getException();
+    private Task<Void> commitStatusChange(BookingRequest booking, String newStatus) {
+        if (booking == null || booking.getId() == null) {
+            return Tasks.forException(new IllegalArgumentException("Booking is required"));
+        }
 
-                    var bookingDoc = task.getResult();
+        DocumentReference bookingRef = db.collection("bookings").document(booking.getId());
+
+        return db.runTransaction(transaction -> {
+                    DocumentSnapshot bookingDoc = transaction.get(bookingRef);
                     if (!bookingDoc.exists()) {
-                        throw new Exception("Booking not found");
+                        throw new IllegalStateException("Booking not found");
                     }
 
                     String oldStatus = bookingDoc.getString("status");
                     String rentalId = bookingDoc.getString("rentalId");
 
-                    // Update status
+                    // All reads first: the months whose nights this change frees
+                    Map<String, List<String>> releasedNights = Collections.emptyMap();
+                    if (rentalId != null && holdsDates(oldStatus) && !holdsDates(newStatus)) {
+                        releasedNights = readOwnedNights(transaction, rentalId, bookingDoc);
+                    }
+
+                    Timestamp now = Timestamp.now();
                     Map<String, Object> updates = new HashMap<>();
                     updates.put("status", newStatus);
-                    updates.put("updatedAt", Timestamp.now());
-
-                    return db.collection("bookings")
-                            .document(bookingId)
-                            .update(updates)
-                            .continueWithTask(updateTask -> {
-                                if (!updateTask.isSuccessful()) {
-                                    throw updateTask.getException();
-                                }
-
-                                // Track booking count for popularity score
-                                if ("approved".equals(newStatus) &&
-                                        !"approved".equals(oldStatus) &&
-                                        rentalId != null) {
-                                    PopularityScoreHelper.incrementBookingCount(rentalId);
-                                }
-
-                                // Send notification to guest
-                                String notificationTitle;
-                                String notificationMessage;
-                                String notificationType;
-
-                                if ("approved".equals(newStatus)) {
-                                    notificationTitle = "Booking Approved! 🎉";
-                                    notificationMessage = "Your booking for " + rentalTitle + " has been approved!";
-                                    notificationType = "booking_approved";
-                                } else if ("rejected".equals(newStatus)) {
-                                    notificationTitle = "Booking Update";
-                                    notificationMessage = "Your booking for " + rentalTitle + " was not approved.";
-                                    notificationType = "booking_rejected";
-                                } else {
-                                    notificationTitle = "Booking Status Update";
-                                    notificationMessage = "Your booking for " + rentalTitle + " status has changed to: " + newStatus;
-                                    notificationType = "booking_status_changed";
-                                }
-
-                                Map<String, Object> notification = new HashMap<>();
-                                notification.put("receiverId", guestUserId);
-                                notification.put("senderId", auth.getCurrentUser() != null ?
-                                        auth.getCurrentUser().getUid() : "system");
-                                notification.put("title", notificationTitle);
-                                notification.put("message", notificationMessage);
-                                notification.put("type", notificationType);
-                                notification.put("bookingId", bookingId);
-                                notification.put("rentalId", rentalId);
-                                notification.put("timestamp", Timestamp.now());
-                                notification.put("read", false);
-
-                                return db.collection("users")
-                                        .document(guestUserId)
-                                        .collection("notifications")
-                                        .add(notification)
-                                        .continueWith(notifTask -> {
-                                            // Don't fail the status update if notification fails
-                                            if (!notifTask.isSuccessful()) {
-                                                Log.e(TAG, "Failed to send notification to guest",
-                                                        notifTask.getException());
-                                            }
-                                            return null;
-                                        });
-                            });
+                    updates.put("updatedAt", now);
+                    if ("cancelled".equals(newStatus)) {
+                        updates.put("cancelledAt", now);
+                    }
+                    transaction.update(bookingRef, updates);
+
+                    if (rentalId != null) {
+                        String rentalStatus = rentalStatusAfter(oldStatus, newStatus);
+                        if (rentalStatus != null) {
+                            transaction.update(db.collection("rental_houses").document(rentalId),
+                                    "status", rentalStatus,
+                                    "updatedAt", now);
+                        }
+
+                        // Only count a booking the first time it is approved
+                        if ("approved".equals(newStatus) && !"approved".equals(oldStatus)) {
+                            PopularityScoreHelper.addBookingDelta(transaction, rentalId, 1);
+                        }
+
+                        releaseNights(transaction, rentalId, releasedNights);
+                    }
+                    return null;
                 });
     }
 
     /**
-     * Cancel booking (by renter/guest) - updates status to "cancelled" and notifies owner
+     * Rental status implied by a booking status change, or null to leave it.
+     * An approved booking marks the rental "pending" (booked); losing the
+     * approval puts it back to "active".
      */
-    public Task<Void> cancelBooking(String bookingId) {
-        return db.collection("bookings")
-                .document(bookingId)
-                .get()
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) throw task.getException();
+    private static String rentalStatusAfter(String oldStatus, String newStatus) {
+        if ("approved".equals(newStatus) && !"approved".equals(oldStatus)) return "pending";
+        if ("approved".equals(oldStatus) && !"approved".equals(newStatus)) return "active";
+        return null;
+    }
 
-                    var bookingDoc = task.getResult();
+    /**
+     * Delete booking completely (for owner or guest after reject/cancel)
+     */
+    public Task<Void> deleteBooking(String bookingId) {
+        return deleteBookingWithNotification(bookingId, null, null, null);
+    }
+
+    /**
+     * Delete booking with notification (optional - notifies the other party).
+     * The delete, rental status revert, released nights and notification are
+     * committed in one transaction that reads the booking first.
+     */
+    public Task<Void> deleteBookingWithNotification(String bookingId, String notifyUserId,
+                                                    String notifyUserRole, String rentalTitle) {
+        DocumentReference bookingRef = db.collection("bookings").document(bookingId);
+
+        return db.runTransaction(transaction -> {
+                    DocumentSnapshot bookingDoc = transaction.get(bookingRef);
                     if (!bookingDoc.exists()) {
-                        throw new Exception("Booking not found");
+                        throw new IllegalStateException("Booking not found");
                     }
 
-                    String ownerId = bookingDoc.getString("ownerId");
-                    String guestName = bookingDoc.getString("guestName");
-                    String rentalTitle = bookingDoc.getString("rentalTitle");
+                    String status = bookingDoc.getString("status");
                     String rentalId = bookingDoc.getString("rentalId");
-                    String oldStatus = bookingDoc.getString("status");
 
-                    // Update status to cancelled
-                    Map<String, Object> updates = new HashMap<>();
-                    updates.put("status", "cancelled");
-                    updates.put("cancelledAt", Timestamp.now());
-                    updates.put("updatedAt", Timestamp.now());
-
-                    return db.collection("bookings")
-                            .document(bookingId)
-                            .update(updates)
-                            .continueWithTask(updateTask -> {
-                                if (!updateTask.isSuccessful()) {
-                                    throw updateTask.getException();
-                                }
-
-                                // If rental was pending/approved, revert status to active
-                                if ("approved".equals(oldStatus) && rentalId != null) {
-                                    Map<String, Object> rentalUpdates = new HashMap<>();
-                                    rentalUpdates.put("status", "active");
-                                    rentalUpdates.put("updatedAt", Timestamp.now());
-
-                                    db.collection("rental_houses")
-                                            .document(rentalId)
-                                            .update(rentalUpdates)
-                                            .addOnFailureListener(e ->
-                                                    Log.e(TAG, "Failed to update rental status", e));
-                                }
-
-                                // Notify owner about cancellation
-                                if (ownerId != null) {
-                                    Map<String, Object> notification = new HashMap<>();
-                                    notification.put("receiverId", ownerId);
-                                    notification.put("senderId", auth.getCurrentUser() != null ?
-                                            auth.getCurrentUser().getUid() : "system");
-                                    notification.put("title", "Booking Cancelled");
-                                    notification.put("message", guestName + " cancelled their booking for " + rentalTitle);
-                                    notification.put("type", "booking_cancelled");
-                                    notification.put("bookingId", bookingId);
-                                    notification.put("rentalId", rentalId);
-                                    notification.put("timestamp", Timestamp.now());
-                                    notification.put("read", false);
-
-                                    return db.collection("users")
-                                            .document(ownerId)
-                                            .collection("notifications")
-                                            .add(notification)
-                                            .continueWith(notifTask -> {
-                                                if (!notifTask.isSuccessful()) {
-                                                    Log.e(TAG, "Failed to send cancellation notification",
-                                                            notifTask.getException());
-                                                }
-                                                return null;
-                                            });
-                                }
-
-                                return Tasks.forResult(null);
-                            });
-                });
-    }
+                    Map<String, List<String>> releasedNights = Collections.emptyMap();
+                    if (rentalId != null && holdsDates(status)) {
+                        releasedNights = readOwnedNights(transaction, rentalId, bookingDoc);
+                    }
 
-    /**
-     * Delete booking completely (for owner or guest after reject/cancel)
-     */
-    public Task<Void> deleteBooking(String bookingId) {
-        return db.collection("bookings")
-                .document(bookingId)
-                .delete()
+                    transaction.delete(bookingRef);
+
+                    if (rentalId != null) {
+                        String rentalStatus = rentalStatusAfter(status, "deleted");
+                        if (rentalStatus != null) {
+                            transaction.update(db.collection("rental_houses").document(rentalId),
+                                    "status", rentalStatus,
+                                    "updatedAt", Timestamp.now());
+                        }
+                        releaseNights(transaction, rentalId, releasedNights);
+                    }
+
+                    // Send notification if needed
+                    if (notifyUserId != null && !notifyUserId.isEmpty()) {
+                        String message;
+                        if ("owner".equals(notifyUserRole)) {
+                            message = "The owner has removed the booking request for " + rentalTitle;
+                        } else {
+                            message = "A booking request for " + rentalTitle + " has been removed";
+                        }
+
+                        transaction.set(db.collection("users").document(notifyUserId).collection("notifications").document(),
+                                newNotification(notifyUserId, "Booking Removed", message,
+                                        "booking_deleted", null, null));
+                    }
+                    return null;
+                })
                 .continueWith(task -> {
                     if (!task.isSuccessful()) {
                         Log.e(TAG, "Failed to delete booking", task.getException());
@@ -318,67 +273,155 @@ public class BookingService {
                 });
     }
 
+    private Map<String, Object> newNotification(String receiverId, String title, String message,
+                                                String type, String bookingId, String rentalId) {
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("receiverId", receiverId);
+        notification.put("senderId", auth.getCurrentUser() != null ?
+                auth.getCurrentUser().getUid() : "system");
+        notification.put("title", title);
+        notification.put("message", message);
+        notification.put("type", type);
+        if (bookingId != null) notification.put("bookingId", bookingId);
+        if (rentalId != null) notification.put("rentalId", rentalId);
+        Timestamp now = Timestamp.now();
+        notification.put("timestamp", now);
+        // NotificationService lists notifications by createdAt
+        notification.put("createdAt", now);
+        notification.put("read", false);
+        return notification;
+    }
+
+    public interface OnAvailabilityListener {
+        void onAvailability(RentalAvailability availability);
+    }
+
     /**
-     * Delete booking with notification (optional - notifies the other party)
+     * Booked nights of a rental for [from, to), as a per-day bitset.
+     * Built from the month documents of the availability index in one range
+     * query; the bookings collection is never scanned.
      */
-    public Task<Void> deleteBookingWithNotification(String bookingId, String notifyUserId,
-                                                    String notifyUserRole, String rentalTitle) {
-        return db.collection("bookings")
-                .document(bookingId)
+    public Task<RentalAvailability> getAvailability(String rentalId, Date from, Date to) {
+        RentalAvailability availability = newAvailability(from, to);
+
+        return availabilityRange(rentalId, from, to)
                 .get()
-                .continueWithTask(task -> {
+                .continueWith(task -> {
                     if (!task.isSuccessful()) throw task.getException();
-
-                    var bookingDoc = task.getResult();
-                    if (!bookingDoc.exists()) {
-                        throw new Exception("Booking not found");
+                    for (DocumentSnapshot monthDoc : task.getResult().getDocuments()) {
+                        availability.applyMonth(monthDoc.getId(), bookedDays(monthDoc));
                     }
+                    return availability.copy();
+                });
+    }
 
-                    String status = bookingDoc.getString("status");
+    /**
+     * Live version of getAvailability. The first callback is served from the
+     * local Firestore cache when available; later ones apply only the month
+     * documents that changed. Each callback gets its own copy of the bitset.
+     */
+    public ListenerRegistration listenToAvailability(String rentalId, Date from, Date to,
+                                                     OnAvailabilityListener listener) {
+        RentalAvailability availability = newAvailability(from, to);
+
+        return availabilityRange(rentalId, from, to)
+                .addSnapshotListener((snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Availability listen failed", error);
+                        return;
+                    }
+                    if (snapshots == null) return;
 
-                    // Delete the booking
-                    return db.collection("bookings")
-                            .document(bookingId)
-                            .delete()
-                            .continueWithTask(deleteTask -> {
-                                if (!deleteTask.isSuccessful()) {
-                                    throw deleteTask.getException();
-                                }
-
-                                // Send notification if needed
-                                if (notifyUserId != null && !notifyUserId.isEmpty()) {
-                                    String message;
-                                    if ("owner".equals(notifyUserRole)) {
-                                        message = "The owner has removed the booking request for " + rentalTitle;
-                                    } else {
-                                        message = "A booking request for " + rentalTitle + " has been removed";
-                                    }
-
-                                    Map<String, Object> notification = new HashMap<>();
-                                    notification.put("receiverId", notifyUserId);
-                                    notification.put("senderId", auth.getCurrentUser() != null ?
-                                            auth.getCurrentUser().getUid() : "system");
-                                    notification.put("title", "Booking Removed");
-                                    notification.put("message", message);
-                                    notification.put("type", "booking_deleted");
-                                    notification.put("timestamp", Timestamp.now());
-                                    notification.put("read", false);
-
-                                    return db.collection("users")
-                                            .document(notifyUserId)
-                                            .collection("notifications")
-                                            .add(notification)
-                                            .continueWith(notifTask -> {
-                                                if (!notifTask.isSuccessful()) {
-                                                    Log.e(TAG, "Failed to send deletion notification",
-                                                            notifTask.getException());
-                                                }
-                                                return null;
-                                            });
-                                }
-
-                                return Tasks.forResult(null);
-                            });
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        DocumentSnapshot monthDoc = change.getDocument();
+                        availability.applyMonth(monthDoc.getId(),
+                                change.getType() == DocumentChange.Type.REMOVED ? null : bookedDays(monthDoc));
+                    }
+                    listener.onAvailability(availability.copy());
                 });
     }
-}
\ No newline at end of file
+
+    private Query availabilityRange(String rentalId, Date from, Date to) {
+        return db.collection("rental_houses")
+                .document(rentalId)
+                .collection("availability")
+                .orderBy(FieldPath.documentId())
+                .startAt(BookingCalendar.monthKey(BookingCalendar.startOfDay(from)))
+                .endAt(BookingCalendar.monthKey(BookingCalendar.startOfDay(to)));
+    }
+
+    private static RentalAvailability newAvailability(Date from, Date to) {
+        long startDay = BookingCalendar.epochDay(from);
+        int dayCount = (int) Math.max(0, BookingCalendar.epochDay(to) - startDay);
+        return new RentalAvailability(startDay, dayCount);
+    }
+
+    /**
+     * Read the month documents of a booking's stay and return the nights that
+     * still belong to it. A night claimed by another booking since (after this
+     * one was released once already) is left alone.
+     */
+    private Map<String, List<String>> readOwnedNights(Transaction transaction, String rentalId,
+                                                     DocumentSnapshot bookingDoc)
+            throws FirebaseFirestoreException {
+        Timestamp checkIn = bookingDoc.getTimestamp("checkInDate");
+        Timestamp checkOut = bookingDoc.getTimestamp("checkOutDate");
+        if (checkIn == null || checkOut == null) return Collections.emptyMap();
+
+        Date start = checkIn.toDate();
+        Date end = checkOut.toDate();
+        if (BookingCalendar.nightCount(start, end) > BookingCalendar.MAX_NIGHTS) {
+            // Older stays over the cap were indexed for their first MAX_NIGHTS nights only
+            end = new Date(start.getTime() + BookingCalendar.MAX_NIGHTS * BookingCalendar.DAY_MS);
+        }
+
+        String bookingId = bookingDoc.getId();
+        Map<String, List<String>> owned = new HashMap<>();
+        Map<String, List<String>> nightsByMonth = BookingCalendar.nightsByMonth(start, end);
+        for (Map.Entry<String, List<String>> entry : nightsByMonth.entrySet()) {
+            Map<String, Object> booked = bookedDays(transaction.get(availabilityRef(rentalId, entry.getKey())));
+            List<String> days = new ArrayList<>();
+            for (String day : entry.getValue()) {
+                if (bookingId.equals(booked.get(day))) days.add(day);
+            }
+            if (!days.isEmpty()) owned.put(entry.getKey(), days);
+        }
+        return owned;
+    }
+
+    /**
+     * Free nights returned by readOwnedNights in the rental's availability index
+     */
+    private void releaseNights(Transaction transaction, String rentalId,
+                               Map<String, List<String>> nightsByMonth) {
+        for (Map.Entry<String, List<String>> entry : nightsByMonth.entrySet()) {
+            Map<String, Object> days = new HashMap<>();
+            for (String day : entry.getValue()) {
+                days.put(day, FieldValue.delete());
+            }
+            transaction.set(availabilityRef(rentalId, entry.getKey()),
+                    Collections.singletonMap(BookingCalendar.DAYS_FIELD, days),
+                    SetOptions.merge());
+        }
+    }
+
+    /**
+     * Pending and approved bookings hold their nights; everything else frees them
+     */
+    private static boolean holdsDates(String status) {
+        return status == null || "pending".equals(status) || "approved".equals(status);
+    }
+
+    private DocumentReference availabilityRef(String rentalId, String month) {
+        return db.collection("rental_houses")
+                .document(rentalId)
+                .collection("availability")
+                .document(month);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> bookedDays(DocumentSnapshot monthDoc) {
+        Object days = monthDoc != null ? monthDoc.get(BookingCalendar.DAYS_FIELD) : null;
+        return days instanceof Map ? (Map<String, Object>) days : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,76 @@
+package com.khstay.myapplication.data.firebase;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+/**
+ * Read-through over Firestore's persistent cache (sized in MyApp).
+ * The local copy is delivered first so a screen can render without waiting
+ * on the network, then the server copy replaces it once it arrives.
+ *
+ * Callbacks run on the main thread in this order: at most one
+ * onResult(..., true), then exactly one of onResult(..., false) or onError.
+ */
+public class CacheFirstReader {
+
+    private static final String TAG = "CacheFirstReader";
+
+    public interface Callback<T> {
+        void onResult(T result, boolean fromCache);
+
+        /**
+         * Server read failed. cachedShown tells whether a cached result was
+         * already delivered, in which case the screen can keep showing it.
+         */
+        void onError(Exception e, boolean cachedShown);
+    }
+
+    private CacheFirstReader() {}
+
+    public static void get(Query query, Callback<QuerySnapshot> callback) {
+        // An empty cached result can't be told apart from "never fetched", so it is not shown
+        read(query.get(Source.CACHE), query.get(Source.SERVER),
+                snapshot -> !snapshot.isEmpty(), callback);
+    }
+
+    public static void get(DocumentReference ref, Callback<DocumentSnapshot> callback) {
+        read(ref.get(Source.CACHE), ref.get(Source.SERVER),
+                DocumentSnapshot::exists, callback);
+    }
+
+    private interface Usable<T> {
+        boolean test(T result);
+    }
+
+    // Both reads start together; the cache read only counts if it beats the server
+    private static <T> void read(Task<T> cacheTask, Task<T> serverTask,
+                                 Usable<T> usable, Callback<T> callback) {
+        final boolean[] state = new boolean[2]; // [0] cache delivered, [1] server done
+
+        cacheTask.addOnCompleteListener(task -> {
+            if (state[1] || !task.isSuccessful() || task.getResult() == null) return;
+            if (!usable.test(task.getResult())) return;
+            state[0] = true;
+            callback.onResult(task.getResult(), true);
+        });
+
+        serverTask.addOnCompleteListener(task -> {
+            state[1] = true;
+            if (task.isSuccessful() && task.getResult() != null) {
+                callback.onResult(task.getResult(), false);
+            } else {
+                Exception e = task.getException() != null
+                        ? task.getException()
+                        : new IllegalStateException("Server read failed");
+                Log.w(TAG, "Server read failed" + (state[0] ? ", keeping cached result" : ""), e);
+                callback.onError(e, state[0]);
+            }
+        });
+    }
+}
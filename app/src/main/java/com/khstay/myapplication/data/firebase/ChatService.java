@@ -2,21 +2,25 @@ package com.khstay.myapplication.data.firebase;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.WriteBatch;
-import com.khstay.myapplication.utils.FCMHelper;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,14 +28,18 @@ import java.util.Map;
 public class ChatService {
 
     private static final String TAG = "ChatService";
+
+    // Field of users/{uid}/counters/chat holding the total unread message count
+    public static final String TOTAL_UNREAD_FIELD = "totalUnread";
+    // Set by the first rebuild; increments from senders create the document before that
+    public static final String SEEDED_FIELD = "seeded";
+
     private final FirebaseFirestore db;
     private final FirebaseAuth auth;
-    private final NotificationService notificationService;
 
     public ChatService() {
         this.db = FirebaseFirestore.getInstance();
         this.auth = FirebaseAuth.getInstance();
-        this.notificationService = new NotificationService();
     }
 
     /**
@@ -97,7 +105,7 @@ public class ChatService {
     }
 
     /**
-     * Send a message in a conversation (with push notification)
+     * Send a message in a conversation; one batch, the push is sent server-side
      */
     public Task<Void> sendMessage(String conversationId, String messageText, String receiverId) {
         String senderId = auth.getCurrentUser().getUid();
@@ -132,41 +140,13 @@ public class ChatService {
 
         batch.update(conversationRef, conversationUpdate);
 
-        return batch.commit().continueWithTask(task -> {
-            if (!task.isSuccessful()) {
-                throw task.getException();
-            }
-
-            // Get sender info and send notifications
-            return getUserInfo(senderId).continueWithTask(userTask -> {
-                if (!userTask.isSuccessful()) {
-                    return Tasks.forResult(null);
-                }
+        // Keep the receiver's total unread aggregate in step with the per-conversation count
+        batch.set(unreadCounterRef(receiverId),
+                Collections.singletonMap(TOTAL_UNREAD_FIELD, FieldValue.increment(1)),
+                SetOptions.merge());
 
-                Map<String, String> userInfo = userTask.getResult();
-                String senderName = userInfo.get("displayName");
-                String senderPhoto = userInfo.get("photoUrl");
-
-                // 1. Send in-app notification
-                Task<Void> inAppNotification = notificationService.createNotification(
-                        receiverId,
-                        "New message from " + senderName,
-                        messageText,
-                        "chat"
-                );
-
-                // 2. Send push notification
-                FCMHelper.sendChatMessageNotification(
-                        receiverId,
-                        senderName,
-                        messageText,
-                        senderId,
-                        senderPhoto
-                );
-
-                return inAppNotification;
-            });
-        });
+        // The receiver's notification and push come from the onMessageCreated function
+        return batch.commit();
     }
 
     /**
@@ -248,53 +228,89 @@ public class ChatService {
      */
     public Task<Void> deleteConversation(String conversationId) {
         String currentUserId = auth.getCurrentUser().getUid();
+        DocumentReference conversationRef = db.collection("conversations").document(conversationId);
 
-        return db.collection("conversations")
-                .document(conversationId)
-                .get()
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) {
-                        throw task.getException();
-                    }
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(conversationRef);
+            List<String> participantIds = (List<String>) doc.get("participantIds");
 
-                    DocumentSnapshot doc = task.getResult();
-                    List<String> participantIds = (List<String>) doc.get("participantIds");
+            if (participantIds == null || !participantIds.contains(currentUserId)) {
+                throw new SecurityException("You are not a participant in this conversation");
+            }
 
-                    if (participantIds == null || !participantIds.contains(currentUserId)) {
-                        throw new SecurityException("You are not a participant in this conversation");
-                    }
+            long unread = unreadCountFor(doc, currentUserId);
 
-                    // Mark conversation as deleted for current user
-                    Map<String, Object> updates = new HashMap<>();
-                    updates.put("deletedFor." + currentUserId, true);
-                    updates.put("deletedAt." + currentUserId, Timestamp.now());
+            // Mark conversation as deleted for current user
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("deletedFor." + currentUserId, true);
+            updates.put("deletedAt." + currentUserId, Timestamp.now());
+            updates.put("unreadCounts." + currentUserId, 0);
+            transaction.update(conversationRef, updates);
 
-                    return db.collection("conversations")
-                            .document(conversationId)
-                            .update(updates);
-                });
+            if (unread > 0) {
+                transaction.set(unreadCounterRef(currentUserId),
+                        Collections.singletonMap(TOTAL_UNREAD_FIELD, FieldValue.increment(-unread)),
+                        SetOptions.merge());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Newest messages of a conversation, oldest first
+     */
+    public Query getLatestMessages(String conversationId, int limit) {
+        return messagesByTime(conversationId).limitToLast(limit);
+    }
+
+    /**
+     * Messages from the given one onward (inclusive), for the live listener.
+     * Pass null to listen to the whole conversation (used while it is still empty).
+     */
+    public Query getMessagesFrom(String conversationId, @Nullable DocumentSnapshot start) {
+        Query query = messagesByTime(conversationId);
+        return start != null ? query.startAt(start) : query;
     }
 
     /**
-     * Get messages for a conversation (ordered by timestamp)
+     * One page of messages older than the given one, oldest first
      */
-    public Query getMessages(String conversationId) {
+    public Query getMessagesBefore(String conversationId, Timestamp beforeTime, String beforeId, int limit) {
+        return messagesByTime(conversationId)
+                .endBefore(beforeTime, beforeId)
+                .limitToLast(limit);
+    }
+
+    // Messages sent in the same millisecond are ordered by id, so a cursor never skips one
+    private Query messagesByTime(String conversationId) {
         return db.collection("conversations")
                 .document(conversationId)
                 .collection("messages")
-                .orderBy("timestamp", Query.Direction.ASCENDING);
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
     }
 
     /**
-     * Mark messages as read in a conversation
+     * Mark messages as read in a conversation.
+     * Runs as a transaction so the total unread aggregate is decremented by
+     * exactly the count being cleared, even if a message arrives meanwhile.
      */
     public Task<Void> markMessagesAsRead(String conversationId) {
         String currentUserId = auth.getCurrentUser().getUid();
+        DocumentReference conversationRef = db.collection("conversations").document(conversationId);
 
-        // Reset unread count for current user
-        return db.collection("conversations")
-                .document(conversationId)
-                .update("unreadCounts." + currentUserId, 0);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(conversationRef);
+            long unread = unreadCountFor(doc, currentUserId);
+            if (unread <= 0) return null;
+
+            // Reset unread count for current user
+            transaction.update(conversationRef, "unreadCounts." + currentUserId, 0);
+            transaction.set(unreadCounterRef(currentUserId),
+                    Collections.singletonMap(TOTAL_UNREAD_FIELD, FieldValue.increment(-unread)),
+                    SetOptions.merge());
+            return null;
+        });
     }
 
     /**
@@ -309,62 +325,56 @@ public class ChatService {
     }
 
     /**
-     * Get total unread message count for current user
+     * Per-user aggregate holding the total unread message count across all
+     * conversations. Listen to it for the chat badge: one document, live.
+     */
+    public DocumentReference getTotalUnreadCounter() {
+        return unreadCounterRef(auth.getCurrentUser().getUid());
+    }
+
+    /**
+     * Recompute the total unread aggregate from every conversation and mark it
+     * seeded. Needed once per account: the document can already exist from
+     * other users' increments, so only the seeded flag says it is complete.
      */
-    public Task<Integer> getTotalUnreadCount() {
+    public Task<Void> rebuildTotalUnreadCount() {
         String currentUserId = auth.getCurrentUser().getUid();
 
         return db.collection("conversations")
                 .whereArrayContains("participantIds", currentUserId)
                 .get()
-                .continueWith(task -> {
-                    if (!task.isSuccessful() || task.getResult() == null) {
-                        return 0;
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
                     }
 
-                    int totalUnread = 0;
+                    long totalUnread = 0;
                     QuerySnapshot snapshots = task.getResult();
 
                     for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                        Map<String, Object> unreadCounts = (Map<String, Object>) doc.get("unreadCounts");
-                        if (unreadCounts != null && unreadCounts.containsKey(currentUserId)) {
-                            Object count = unreadCounts.get(currentUserId);
-                            if (count instanceof Long) {
-                                totalUnread += ((Long) count).intValue();
-                            } else if (count instanceof Integer) {
-                                totalUnread += (Integer) count;
-                            }
-                        }
+                        totalUnread += unreadCountFor(doc, currentUserId);
                     }
 
-                    return totalUnread;
+                    Map<String, Object> counter = new HashMap<>();
+                    counter.put(TOTAL_UNREAD_FIELD, totalUnread);
+                    counter.put(SEEDED_FIELD, true);
+                    return unreadCounterRef(currentUserId).set(counter, SetOptions.merge());
                 });
     }
 
-    /**
-     * Get user info (display name and photo)
-     */
-    private Task<Map<String, String>> getUserInfo(String userId) {
+    private DocumentReference unreadCounterRef(String userId) {
         return db.collection("users")
                 .document(userId)
-                .get()
-                .continueWith(task -> {
-                    Map<String, String> info = new HashMap<>();
-
-                    if (task.isSuccessful() && task.getResult().exists()) {
-                        DocumentSnapshot doc = task.getResult();
-                        String name = doc.getString("displayName");
-                        String photo = doc.getString("photoUrl");
-
-                        info.put("displayName", name != null ? name : "User");
-                        info.put("photoUrl", photo != null ? photo : "");
-                    } else {
-                        info.put("displayName", "User");
-                        info.put("photoUrl", "");
-                    }
+                .collection("counters")
+                .document("chat");
+    }
 
-                    return info;
-                });
+    private static long unreadCountFor(DocumentSnapshot conversation, String userId) {
+        Map<String, Object> unreadCounts = (Map<String, Object>) conversation.get("unreadCounts");
+        if (unreadCounts == null) return 0;
+
+        Object count = unreadCounts.get(userId);
+        return count instanceof Number ? ((Number) count).longValue() : 0;
     }
 }
 
@@ -1,13 +1,13 @@
 
 package com.khstay.myapplication.data.firebase;
 
+import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
@@ -18,11 +18,7 @@ import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.CustomTarget;
-import com.bumptech.glide.request.transition.Transition;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 import com.khstay.myapplication.MainActivity;
@@ -30,6 +26,8 @@ import com.khstay.myapplication.R;
 import com.khstay.myapplication.ui.chat.ChatActivity;
 import com.khstay.myapplication.ui.profile.NotificationActivity;
 import com.khstay.myapplication.ui.rental.BookingRequestsActivity;
+import com.khstay.myapplication.utils.FcmTokenManager;
+import com.khstay.myapplication.utils.NotificationAvatarCache;
 
 import java.util.Map;
 
@@ -38,6 +36,9 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
     private static final String TAG = "MyFMS";
     private static final String CHANNEL_ID = "khstay_notifications";
     private static final String CHANNEL_NAME = "KH-Stay Notifications";
+    private static final String CHAT_GROUP_PREFIX = "chat_";
+    // Longest a chat notification waits for the sender's avatar
+    private static final long AVATAR_BUDGET_MS = 800;
 
     @Override
     public void onCreate() {
@@ -49,14 +50,7 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
     public void onNewToken(@NonNull String token) {
         Log.d(TAG, "New FCM Token: " + token);
         // Save/refresh token whenever FCM rotates it
-        if (FirebaseAuth.getInstance().getCurrentUser() != null) {
-            FirebaseFirestore.getInstance()
-                    .collection("users")
-                    .document(FirebaseAuth.getInstance().getCurrentUser().getUid())
-                    .update("fcmToken", token)
-                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Token updated"))
-                    .addOnFailureListener(e -> Log.e(TAG, "Token update failed", e));
-        }
+        FcmTokenManager.registerToken(this, token);
     }
 
     @Override
@@ -90,13 +84,16 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
         showNotification(title, body, type, data);
     }
 
+    // Runs on FCM's background thread, so waiting on the avatar here never blocks the UI
     private void showNotification(String title, String message, String type, Map<String, String> data) {
+        int notificationId = getNotificationId(type);
         Intent intent = getIntentForNotificationType(type, data);
         intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
 
+        // Request code per notification, so each keeps its own extras
         PendingIntent pendingIntent = PendingIntent.getActivity(
                 this,
-                0,
+                notificationId,
                 intent,
                 PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_IMMUTABLE
         );
@@ -123,57 +120,62 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
             nb.setColor(ContextCompat.getColor(this, colorId));
         }
 
+        NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+
         // ✅ Chat: use MessagingStyle and sender avatar as large icon
         if ("chat".equals(type)) {
+            String otherUserId = data != null ? data.get("otherUserId") : null;
             String otherUserName = data != null ? data.get("otherUserName") : null;
             String otherUserPhoto = data != null ? data.get("otherUserPhoto") : null;
+            String senderName = otherUserName != null ? otherUserName : "User";
 
             // MessagingStyle (richer chat look)
-            NotificationCompat.MessagingStyle style = new NotificationCompat.MessagingStyle(
-                    otherUserName != null ? otherUserName : "User"
-            ).addMessage(message, System.currentTimeMillis(), otherUserName != null ? otherUserName : "User");
-            nb.setStyle(style);
-
-            // If we have a sender photo URL, load as large icon
-            if (otherUserPhoto != null && !otherUserPhoto.isEmpty()) {
-                try {
-                    Glide.with(getApplicationContext())
-                            .asBitmap()
-                            .load(otherUserPhoto)
-                            .circleCrop()
-                            .into(new CustomTarget<Bitmap>() {
-                                @Override
-                                public void onResourceReady(@NonNull Bitmap resource,
-                                                            @Nullable Transition<? super Bitmap> transition) {
-                                    nb.setLargeIcon(resource);
-                                    NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                                    nm.notify(getNotificationId(type), nb.build());
-                                }
-                                @Override
-                                public void onLoadCleared(@Nullable Drawable placeholder) { /* no-op */ }
-                                @Override
-                                public void onLoadFailed(@Nullable Drawable errorDrawable) {
-                                    // Fallback: notify without large icon
-                                    NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                                    nm.notify(getNotificationId(type), nb.build());
-                                }
-                            });
-                    // Return here: we'll notify after image loads
-                    return;
-                } catch (Exception e) {
-                    Log.w(TAG, "Failed to load chat avatar, proceeding without large icon", e);
-                }
-            }
+            nb.setStyle(new NotificationCompat.MessagingStyle(senderName)
+                    .addMessage(message, System.currentTimeMillis(), senderName));
 
-            // No photo: show default style
-            nb.setStyle(style);
+            // Cached per sender; a slow load is skipped rather than holding the notification back
+            Bitmap avatar = null;
+            if (otherUserId != null && otherUserPhoto != null && !otherUserPhoto.isEmpty()) {
+                avatar = NotificationAvatarCache.get(this, otherUserId, otherUserPhoto, AVATAR_BUDGET_MS);
+            }
+            if (avatar != null) nb.setLargeIcon(avatar);
+
+            if (otherUserId != null) {
+                String group = CHAT_GROUP_PREFIX + otherUserId;
+                nb.setGroup(group);
+                nm.notify(notificationId, nb.build());
+                nm.notify(group.hashCode(), chatGroupSummary(group, senderName, avatar, intent));
+                return;
+            }
         } else {
             // Non-chat: default BigText style
             nb.setStyle(new NotificationCompat.BigTextStyle().bigText(message));
         }
 
-        NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        nm.notify(getNotificationId(type), nb.build());
+        nm.notify(notificationId, nb.build());
+    }
+
+    /** Summary that bundles one sender's messages; it shares their avatar bitmap and stays silent */
+    private Notification chatGroupSummary(String group, String senderName,
+                                          @Nullable Bitmap avatar, Intent intent) {
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                this,
+                group.hashCode(),
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        NotificationCompat.Builder summary = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notifications)
+                .setContentTitle(senderName)
+                .setColor(ContextCompat.getColor(this, R.color.primary))
+                .setGroup(group)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+                .setAutoCancel(true)
+                .setContentIntent(pendingIntent);
+        if (avatar != null) summary.setLargeIcon(avatar);
+        return summary.build();
     }
 
     private Intent getIntentForNotificationType(String type, Map<String, String> data) {
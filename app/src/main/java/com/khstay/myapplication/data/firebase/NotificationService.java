@@ -1,16 +1,24 @@
 package com.khstay.myapplication.data.firebase;
 
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class NotificationService {
 
+    // Firestore limit on writes per batch
+    private static final int MAX_BATCH_WRITES = 500;
+
     private final FirebaseAuth auth;
     private final FirebaseFirestore db;
 
@@ -62,23 +70,43 @@ public class NotificationService {
     }
 
     /**
-     * Mark all notifications as read
+     * Mark all notifications as read.
+     * Unread notifications are updated in WriteBatch chunks of up to 500;
+     * the returned Task completes only after every batch has committed.
      */
     public Task<Void> markAllAsRead() {
         String currentUserId = auth.getCurrentUser().getUid();
+        return markNextChunkAsRead(unreadNotifications(currentUserId));
+    }
 
-        return db.collection("users")
-                .document(currentUserId)
-                .collection("notifications")
-                .whereEqualTo("read", false)
+    private Task<Void> markNextChunkAsRead(Query unread) {
+        return unread.limit(MAX_BATCH_WRITES)
                 .get()
                 .continueWithTask(task -> {
-                    if (task.isSuccessful()) {
-                        task.getResult().getDocuments().forEach(doc ->
-                                doc.getReference().update("read", true)
-                        );
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+
+                    List<DocumentSnapshot> docs = task.getResult().getDocuments();
+                    if (docs.isEmpty()) {
+                        return Tasks.forResult(null);
+                    }
+
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot doc : docs) {
+                        batch.update(doc.getReference(), "read", true);
                     }
-                    return task.continueWith(t -> null);
+
+                    return batch.commit().continueWithTask(commitTask -> {
+                        if (!commitTask.isSuccessful()) {
+                            throw commitTask.getException();
+                        }
+                        // A full chunk means there may be more unread notifications left
+                        if (docs.size() < MAX_BATCH_WRITES) {
+                            return Tasks.forResult(null);
+                        }
+                        return markNextChunkAsRead(unread);
+                    });
                 });
     }
 
@@ -95,24 +123,31 @@ public class NotificationService {
     }
 
     /**
-     * Get unread notification count
+     * Get unread notification count.
+     * Uses an aggregate count() query, so the badge costs one small read
+     * instead of downloading every unread notification.
      */
     public Task<Integer> getUnreadCount() {
         String currentUserId = auth.getCurrentUser().getUid();
 
-        return db.collection("users")
-                .document(currentUserId)
-                .collection("notifications")
-                .whereEqualTo("read", false)
-                .get()
+        return unreadNotifications(currentUserId)
+                .count()
+                .get(AggregateSource.SERVER)
                 .continueWith(task -> {
                     if (task.isSuccessful()) {
-                        return task.getResult().size();
+                        return (int) task.getResult().getCount();
                     }
                     return 0;
                 });
     }
 
+    private Query unreadNotifications(String userId) {
+        return db.collection("users")
+                .document(userId)
+                .collection("notifications")
+                .whereEqualTo("read", false);
+    }
+
     /**
      * Chat Service - Inner class for better organization
      */
@@ -1,10 +1,35 @@
 package com.khstay.myapplication.data.firebase;
 
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
+import com.khstay.myapplication.ui.rental.model.Rental;
+import com.khstay.myapplication.utils.GeoHashUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RentalService {
 
+    private static final String TAG = "RentalService";
+
+    // Upper bound on documents read per geohash cell query; a cell that fills it is split into finer cells
+    private static final int MAX_RENTALS_PER_CELL = 100;
+    // Upper bound on cell queries per nearby search, so a very dense area can't blow it up
+    private static final int MAX_CELL_QUERIES = 40;
+
     private final FirebaseFirestore db;
 
     public RentalService() {
@@ -19,7 +44,10 @@ public class RentalService {
     }
 
     // Fetch most popular rentals - HYBRID SCORE SYSTEM
-    // Combines views (1x), favorites (3x), and bookings (5x)
+    // Views (1x), favorites (3x) and bookings (5x), halving in weight every week.
+    // The aggregatePopularity Cloud Function stores it as log2 of that activity plus
+    // the weeks since a fixed epoch, so the order holds without decay rewrites;
+    // PopularityScoreHelper.activityOf() turns it back into the activity for display.
     public Query getPopularRentals() {
         return db.collection("rental_houses")
                 .whereEqualTo("status", "active")
@@ -34,4 +62,168 @@ public class RentalService {
                 .whereEqualTo("isPopular", true)
                 .limit(10);
     }
-}
\ No newline at end of file
+
+    // Search page: commune, price and bedroom filters plus sort order run in Firestore,
+    // and the next page starts after the last document of the previous one.
+    // Needs composite indexes on status + commune + the sort / range fields.
+    public Query searchActiveRentals(@Nullable String commune,
+                                     @Nullable Double minPrice,
+                                     @Nullable Double maxPrice,
+                                     @Nullable Integer minBedrooms,
+                                     String sortOption,
+                                     @Nullable DocumentSnapshot startAfter,
+                                     int pageSize) {
+        Query query = db.collection("rental_houses")
+                .whereEqualTo("status", "active");
+
+        if (commune != null && !commune.isEmpty()) {
+            query = query.whereEqualTo("commune", commune);
+        }
+        if (minPrice != null) {
+            query = query.whereGreaterThanOrEqualTo("price", minPrice);
+        }
+        if (maxPrice != null) {
+            query = query.whereLessThanOrEqualTo("price", maxPrice);
+        }
+        if (minBedrooms != null) {
+            query = query.whereGreaterThanOrEqualTo("bedrooms", minBedrooms);
+        }
+
+        switch (sortOption != null ? sortOption : "newest") {
+            case "price_low":
+                query = query.orderBy("price", Query.Direction.ASCENDING);
+                break;
+            case "price_high":
+                query = query.orderBy("price", Query.Direction.DESCENDING);
+                break;
+            case "newest":
+            default:
+                query = query.orderBy("createdAt", Query.Direction.DESCENDING);
+                break;
+        }
+
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        return query.limit(pageSize);
+    }
+
+    // Nearby: range queries over the geohash cells covering the radius (full cells are
+    // split into finer ones, see queryCell), then an exact-distance top-K so only the
+    // closest `limit` rentals come back, nearest first.
+    // Needs a composite index on status + geohash.
+    public Task<List<Rental>> getRentalsNear(double latitude, double longitude,
+                                             double radiusMeters, int limit) {
+        return getRentalsNear(latitude, longitude, radiusMeters, limit, Source.DEFAULT);
+    }
+
+    // Source.CACHE answers from the local Firestore cache only, for a first render
+    public Task<List<Rental>> getRentalsNear(double latitude, double longitude,
+                                             double radiusMeters, int limit, Source source) {
+        AtomicInteger queriesLeft = new AtomicInteger(MAX_CELL_QUERIES);
+        List<Task<List<DocumentSnapshot>>> cellTasks = new ArrayList<>();
+        for (String prefix : GeoHashUtils.coveringPrefixes(latitude, longitude, radiusMeters)) {
+            cellTasks.add(queryCell(prefix, latitude, longitude, radiusMeters, source, queriesLeft));
+        }
+
+        return Tasks.<List<DocumentSnapshot>>whenAllSuccess(cellTasks).continueWith(task -> {
+            if (!task.isSuccessful()) throw task.getException();
+
+            // Max-heap on distance: the farthest of the current top-K sits on top
+            PriorityQueue<NearbyRental> nearest = new PriorityQueue<>(
+                    Math.max(limit, 1), (a, b) -> Double.compare(b.distance, a.distance));
+            Set<String> seen = new HashSet<>();
+
+            for (List<DocumentSnapshot> cell : task.getResult()) {
+                for (DocumentSnapshot doc : cell) {
+                    if (!seen.add(doc.getId())) continue;
+
+                    Rental rental = doc.toObject(Rental.class);
+                    if (rental == null || rental.getLatitude() == null || rental.getLongitude() == null) continue;
+                    rental.setId(doc.getId());
+
+                    // Cells are square, the radius is not: drop the corners
+                    double distance = GeoHashUtils.distanceMeters(
+                            latitude, longitude, rental.getLatitude(), rental.getLongitude());
+                    if (distance > radiusMeters) continue;
+
+                    if (nearest.size() < limit) {
+                        nearest.add(new NearbyRental(rental, distance));
+                    } else if (!nearest.isEmpty() && distance < nearest.peek().distance) {
+                        nearest.poll();
+                        nearest.add(new NearbyRental(rental, distance));
+                    }
+                }
+            }
+
+            // Drain farthest-first, then reverse to nearest-first
+            List<Rental> rentals = new ArrayList<>(nearest.size());
+            while (!nearest.isEmpty()) rentals.add(nearest.poll().rental);
+            Collections.reverse(rentals);
+            return rentals;
+        });
+    }
+
+    /**
+     * Documents of one geohash cell. A cell that fills MAX_RENTALS_PER_CELL was cut
+     * off in geohash order, not by distance, so the part it did not return is read
+     * again as finer cells, skipping those outside the radius. Once the query budget
+     * is spent a full cell is used as is, and may then miss some of its nearest rentals.
+     */
+    private Task<List<DocumentSnapshot>> queryCell(String prefix, double latitude, double longitude,
+                                                  double radiusMeters, Source source,
+                                                  AtomicInteger queriesLeft) {
+        queriesLeft.decrementAndGet();
+        return db.collection("rental_houses")
+                .whereEqualTo("status", "active")
+                .orderBy("geohash")
+                .startAt(prefix)
+                .endAt(prefix + "\uf8ff")
+                .limit(MAX_RENTALS_PER_CELL)
+                .get(source)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    List<DocumentSnapshot> docs = task.getResult().getDocuments();
+                    if (docs.size() < MAX_RENTALS_PER_CELL || prefix.length() >= GeoHashUtils.STORED_PRECISION) {
+                        return Tasks.forResult(docs);
+                    }
+
+                    // Child cells before the last document's one were returned in full
+                    String lastHash = docs.get(docs.size() - 1).getString("geohash");
+                    String lastChild = lastHash != null && lastHash.length() > prefix.length()
+                            ? lastHash.substring(0, prefix.length() + 1) : prefix;
+                    List<String> children = new ArrayList<>();
+                    for (String child : GeoHashUtils.childPrefixes(prefix)) {
+                        if (child.compareTo(lastChild) < 0) continue;
+                        if (GeoHashUtils.distanceToCellMeters(latitude, longitude, child) > radiusMeters) continue;
+                        children.add(child);
+                    }
+                    if (children.size() > queriesLeft.get()) {
+                        Log.w(TAG, "Nearby cell " + prefix + " is full and the query budget is spent;"
+                                + " results may miss some of its rentals");
+                        return Tasks.forResult(docs);
+                    }
+
+                    List<Task<List<DocumentSnapshot>>> childTasks = new ArrayList<>();
+                    for (String child : children) {
+                        childTasks.add(queryCell(child, latitude, longitude, radiusMeters, source, queriesLeft));
+                    }
+                    return Tasks.<List<DocumentSnapshot>>whenAllSuccess(childTasks).continueWith(all -> {
+                        if (!all.isSuccessful()) throw all.getException();
+                        List<DocumentSnapshot> merged = new ArrayList<>(docs);
+                        for (List<DocumentSnapshot> childDocs : all.getResult()) merged.addAll(childDocs);
+                        return merged;
+                    });
+                });
+    }
+
+    private static class NearbyRental {
+        final Rental rental;
+        final double distance;
+
+        NearbyRental(Rental rental, double distance) {
+            this.rental = rental;
+            this.distance = distance;
+        }
+    }
+}
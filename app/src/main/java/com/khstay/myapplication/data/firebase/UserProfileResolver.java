@@ -0,0 +1,243 @@
+package com.khstay.myapplication.data.firebase;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared lookup for the public part of user profiles (name, photo, phone).
+ * Misses are fetched with whereIn(documentId) in chunks instead of one get()
+ * per user, results are kept in a small LRU cache with a TTL, and concurrent
+ * requests for the same user share one in-flight fetch.
+ */
+public class UserProfileResolver {
+
+    private static final String TAG = "UserProfileResolver";
+
+    // Firestore allows up to 30 values in an "in" filter
+    private static final int MAX_IDS_PER_QUERY = 30;
+    private static final int MAX_CACHED_PROFILES = 200;
+    private static final long CACHE_TTL_MS = 10 * 60 * 1000L;
+
+    private static UserProfileResolver instance;
+
+    private final FirebaseFirestore db;
+
+    // Access-ordered map evicts the least recently used profile first
+    private final LinkedHashMap<String, CachedProfile> cache =
+            new LinkedHashMap<String, CachedProfile>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedProfile> eldest) {
+                    return size() > MAX_CACHED_PROFILES;
+                }
+            };
+
+    private final Map<String, TaskCompletionSource<UserProfile>> inFlight = new HashMap<>();
+
+    public static synchronized UserProfileResolver getInstance() {
+        if (instance == null) {
+            instance = new UserProfileResolver(FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    private UserProfileResolver(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Profile from the cache if it is still fresh, without touching the network
+     */
+    @Nullable
+    public synchronized UserProfile getCached(String userId) {
+        CachedProfile cached = cache.get(userId);
+        if (cached == null) return null;
+        if (cached.isExpired()) {
+            cache.remove(userId);
+            return null;
+        }
+        return cached.profile;
+    }
+
+    /**
+     * Drop a cached profile, e.g. after the user edits it
+     */
+    public synchronized void invalidate(String userId) {
+        cache.remove(userId);
+    }
+
+    public Task<UserProfile> resolve(String userId) {
+        return resolve(Collections.singletonList(userId))
+                .continueWith(task -> {
+                    UserProfile profile = task.getResult().get(userId);
+                    return profile != null ? profile : UserProfile.missing(userId);
+                });
+    }
+
+    /**
+     * Resolve many users at once. The result maps each user id to its profile;
+     * ids whose lookup failed are left out. Unknown users map to a profile
+     * whose exists() is false.
+     */
+    public Task<Map<String, UserProfile>> resolve(Collection<String> userIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId != null && !userId.isEmpty()) ids.add(userId);
+        }
+
+        Map<String, Task<UserProfile>> pending = new LinkedHashMap<>();
+        List<String> toFetch = new ArrayList<>();
+
+        synchronized (this) {
+            for (String userId : ids) {
+                UserProfile cached = getCached(userId);
+                if (cached != null) {
+                    pending.put(userId, Tasks.forResult(cached));
+                    continue;
+                }
+
+                TaskCompletionSource<UserProfile> source = inFlight.get(userId);
+                if (source == null) {
+                    source = new TaskCompletionSource<>();
+                    inFlight.put(userId, source);
+                    toFetch.add(userId);
+                }
+                pending.put(userId, source.getTask());
+            }
+        }
+
+        for (int start = 0; start < toFetch.size(); start += MAX_IDS_PER_QUERY) {
+            List<String> chunk = new ArrayList<>(
+                    toFetch.subList(start, Math.min(start + MAX_IDS_PER_QUERY, toFetch.size())));
+            db.collection("users")
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get()
+                    .addOnCompleteListener(task -> completeChunk(chunk, task));
+        }
+
+        return Tasks.whenAllComplete(pending.values())
+                .continueWith(task -> {
+                    Map<String, UserProfile> results = new HashMap<>();
+                    for (Map.Entry<String, Task<UserProfile>> entry : pending.entrySet()) {
+                        if (entry.getValue().isSuccessful()) {
+                            results.put(entry.getKey(), entry.getValue().getResult());
+                        }
+                    }
+                    return results;
+                });
+    }
+
+    private void completeChunk(List<String> chunk, Task<QuerySnapshot> task) {
+        Map<String, UserProfile> fetched = new HashMap<>();
+        Exception error = null;
+
+        if (task.isSuccessful() && task.getResult() != null) {
+            for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                fetched.put(doc.getId(), UserProfile.from(doc));
+            }
+        } else {
+            error = task.getException() != null
+                    ? task.getException()
+                    : new IllegalStateException("User lookup failed");
+            Log.e(TAG, "Failed to resolve " + chunk.size() + " user profiles", error);
+        }
+
+        List<TaskCompletionSource<UserProfile>> sources = new ArrayList<>();
+        List<UserProfile> profiles = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (String userId : chunk) {
+                TaskCompletionSource<UserProfile> source = inFlight.remove(userId);
+                if (source == null) continue;
+
+                UserProfile profile = null;
+                if (error == null) {
+                    profile = fetched.get(userId);
+                    if (profile == null) profile = UserProfile.missing(userId);
+                    cache.put(userId, new CachedProfile(profile, now + CACHE_TTL_MS));
+                }
+                sources.add(source);
+                profiles.add(profile);
+            }
+        }
+
+        // Complete outside the lock; listeners may call back into the resolver
+        for (int i = 0; i < sources.size(); i++) {
+            if (error == null) {
+                sources.get(i).setResult(profiles.get(i));
+            } else {
+                sources.get(i).setException(error);
+            }
+        }
+    }
+
+    private static class CachedProfile {
+        final UserProfile profile;
+        final long expiresAt;
+
+        CachedProfile(UserProfile profile, long expiresAt) {
+            this.profile = profile;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the profile fields other users are shown
+     */
+    public static class UserProfile {
+        private final String userId;
+        private final boolean exists;
+        private final String displayName;
+        private final String photoUrl;
+        private final String phone;
+
+        private UserProfile(String userId, boolean exists, String displayName,
+                            String photoUrl, String phone) {
+            this.userId = userId;
+            this.exists = exists;
+            this.displayName = displayName;
+            this.photoUrl = photoUrl;
+            this.phone = phone;
+        }
+
+        static UserProfile from(DocumentSnapshot doc) {
+            return new UserProfile(doc.getId(), true,
+                    doc.getString("displayName"),
+                    doc.getString("photoUrl"),
+                    doc.getString("phone"));
+        }
+
+        static UserProfile missing(String userId) {
+            return new UserProfile(userId, false, null, null, null);
+        }
+
+        public String getUserId() { return userId; }
+        public boolean exists() { return exists; }
+        @Nullable public String getDisplayName() { return displayName; }
+        @Nullable public String getPhotoUrl() { return photoUrl; }
+        @Nullable public String getPhone() { return phone; }
+    }
+}
@@ -65,6 +65,9 @@ public class UserService {
             currentUser.updateProfile(profileUpdates);
         }
 
+        // Other screens resolve names through the shared profile cache
+        UserProfileResolver.getInstance().invalidate(currentUser.getUid());
+
         return db.collection("users")
                 .document(currentUser.getUid())
                 .update(updates);
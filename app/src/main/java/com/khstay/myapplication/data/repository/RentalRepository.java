@@ -4,15 +4,22 @@ import android.net.Uri;
 
 import com.google.android.gms.tasks.Tasks;
 import com.google.android.gms.tasks.Task;
+import androidx.annotation.Nullable;
+
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
+import com.khstay.myapplication.MyApp;
 import com.khstay.myapplication.data.firebase.RentalService;
 import com.khstay.myapplication.ui.rental.model.Rental;
+import com.khstay.myapplication.utils.GeoHashUtils;
+import com.khstay.myapplication.utils.ImageResizer;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,6 +29,9 @@ import java.util.UUID;
 
 public class RentalRepository {
 
+    // Storage file suffixes, in the order ImageResizer returns the variants
+    private static final String[] IMAGE_VARIANT_NAMES = {"thumb", "card", "full"};
+
     private final RentalService rentalService;
     private final FirebaseFirestore db;
     private final FirebaseStorage storage;
@@ -40,9 +50,38 @@ public class RentalRepository {
         return rentalService.getPopularRentals();
     }
 
+    /**
+     * Closest active rentals within radiusMeters, nearest first
+     */
+    public Task<List<Rental>> fetchRentalsNear(double latitude, double longitude,
+                                               double radiusMeters, int limit) {
+        return rentalService.getRentalsNear(latitude, longitude, radiusMeters, limit);
+    }
+
+    public Task<List<Rental>> fetchRentalsNear(double latitude, double longitude,
+                                               double radiusMeters, int limit, Source source) {
+        return rentalService.getRentalsNear(latitude, longitude, radiusMeters, limit, source);
+    }
+
+    /**
+     * One page of active rentals matching the search filters.
+     * Pass the last document of the previous page as the cursor, or null for the first page.
+     */
+    public Query searchRentals(@Nullable String commune,
+                               @Nullable Double minPrice,
+                               @Nullable Double maxPrice,
+                               @Nullable Integer minBedrooms,
+                               String sortOption,
+                               @Nullable DocumentSnapshot cursor,
+                               int pageSize) {
+        return rentalService.searchActiveRentals(
+                commune, minPrice, maxPrice, minBedrooms, sortOption, cursor, pageSize);
+    }
+
     /**
      * Create a new rental with MULTIPLE image uploads (max 3) to Firebase Storage,
-     * then save doc to Firestore.
+     * then save doc to Firestore. Each image is downscaled on-device and uploaded
+     * as thumbnail, card and full-size WebP variants.
      */
     public Task<DocumentReference> createRental(Rental rental, List<Uri> imageUris) {
         if (imageUris == null || imageUris.isEmpty()) {
@@ -53,47 +92,57 @@ public class RentalRepository {
             return Tasks.forException(new IllegalArgumentException("Maximum 3 images allowed"));
         }
 
-        // Upload all images in parallel
-        List<Task<Uri>> uploadTasks = new ArrayList<>();
+        // Resize and upload all images in parallel; each yields [thumbnail, card, full] URLs
+        List<Task<List<String>>> uploadTasks = new ArrayList<>();
 
         for (int i = 0; i < imageUris.size(); i++) {
             Uri imageUri = imageUris.get(i);
-            String imageFileName = "rental_" + System.currentTimeMillis() + "_" + i + "_" + UUID.randomUUID() + ".jpg";
-
-            StorageReference imageRef = storage.getReference()
-                    .child("rental_images")
-                    .child(imageFileName);
-
-            StorageMetadata metadata = new StorageMetadata.Builder()
-                    .setContentType("image/jpeg")
-                    .build();
+            String baseName = "rental_" + System.currentTimeMillis() + "_" + i + "_" + UUID.randomUUID();
 
-            Task<Uri> uploadTask = imageRef.putFile(imageUri, metadata)
+            Task<List<String>> uploadTask = Tasks.call(ImageResizer.executor(),
+                            () -> ImageResizer.encodeVariants(MyApp.appContext(), imageUri,
+                                    Rental.THUMBNAIL_WIDTH_PX, Rental.CARD_WIDTH_PX, Rental.FULL_WIDTH_PX))
                     .continueWithTask(task -> {
                         if (!task.isSuccessful()) throw task.getException();
-                        return imageRef.getDownloadUrl();
+                        List<byte[]> variants = task.getResult();
+                        List<Task<Uri>> variantUploads = new ArrayList<>();
+                        for (int v = 0; v < variants.size(); v++) {
+                            String fileName = baseName + "_" + IMAGE_VARIANT_NAMES[v] + ".webp";
+                            variantUploads.add(uploadImageBytes(fileName, variants.get(v)));
+                        }
+                        return Tasks.<Uri>whenAllSuccess(variantUploads);
+                    })
+                    .continueWith(task -> {
+                        if (!task.isSuccessful()) throw task.getException();
+                        List<String> urls = new ArrayList<>();
+                        for (Uri uri : task.getResult()) urls.add(uri.toString());
+                        return urls;
                     });
 
             uploadTasks.add(uploadTask);
         }
 
         // Wait for all uploads to complete
-        return Tasks.whenAllSuccess(uploadTasks)
+        return Tasks.<List<String>>whenAllSuccess(uploadTasks)
                 .continueWithTask(task -> {
                     if (!task.isSuccessful()) throw task.getException();
 
-                    // Get all download URLs
+                    // Split the per-image variant URLs into one list per size
+                    List<String> thumbnailUrls = new ArrayList<>();
+                    List<String> cardUrls = new ArrayList<>();
                     List<String> downloadUrls = new ArrayList<>();
-                    for (Object result : task.getResult()) {
-                        if (result instanceof Uri) {
-                            downloadUrls.add(result.toString());
-                        }
+                    for (List<String> urls : task.getResult()) {
+                        thumbnailUrls.add(urls.get(0));
+                        cardUrls.add(urls.get(1));
+                        downloadUrls.add(urls.get(2));
                     }
 
                     // Create rental data
                     Map<String, Object> rentalData = new HashMap<>();
                     rentalData.put("title", rental.getTitle());
                     rentalData.put("location", rental.getLocation());
+                    // Commune is stored separately so search can filter on it server-side
+                    rentalData.put("commune", Rental.communeFromLocation(rental.getLocation()));
                     rentalData.put("price", rental.getPrice());
                     rentalData.put("status", rental.getStatus());
                     rentalData.put("category", rental.getCategory());
@@ -103,6 +152,9 @@ public class RentalRepository {
                     rentalData.put("imageUrls", downloadUrls);
                     // Also save first image as primary for backward compatibility
                     rentalData.put("imageUrl", !downloadUrls.isEmpty() ? downloadUrls.get(0) : null);
+                    // Smaller variants for list cards and thumbnails
+                    rentalData.put("thumbnailUrls", thumbnailUrls);
+                    rentalData.put("cardImageUrls", cardUrls);
 
                     rentalData.put("description", rental.getDescription());
                     rentalData.put("ownerId", rental.getOwnerId());
@@ -126,11 +178,33 @@ public class RentalRepository {
                     if (rental.getLongitude() != null) {
                         rentalData.put("longitude", rental.getLongitude());
                     }
+                    // Geohash powers the nearby range queries in RentalService.getRentalsNear
+                    if (rental.getLatitude() != null && rental.getLongitude() != null) {
+                        rentalData.put("geohash",
+                                GeoHashUtils.encode(rental.getLatitude(), rental.getLongitude()));
+                    }
 
                     return db.collection("rental_houses").add(rentalData);
                 });
     }
 
+    private Task<Uri> uploadImageBytes(String fileName, byte[] bytes) {
+        StorageReference imageRef = storage.getReference()
+                .child("rental_images")
+                .child(fileName);
+
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/webp")
+                .setCacheControl("public, max-age=31536000")
+                .build();
+
+        return imageRef.putBytes(bytes, metadata)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    return imageRef.getDownloadUrl();
+                });
+    }
+
     /**
      * Legacy method for single image upload (for backward compatibility)
      */
@@ -141,6 +215,13 @@ public class RentalRepository {
     }
 
     public Task<Void> updateRental(String rentalId, Map<String, Object> updates) {
+        if (updates.get("location") instanceof String) {
+            updates.put("commune", Rental.communeFromLocation((String) updates.get("location")));
+        }
+        if (updates.get("latitude") instanceof Double && updates.get("longitude") instanceof Double) {
+            updates.put("geohash", GeoHashUtils.encode(
+                    (Double) updates.get("latitude"), (Double) updates.get("longitude")));
+        }
         updates.put("updatedAt", Timestamp.now());
         return db.collection("rental_houses")
                 .document(rentalId)
@@ -14,6 +14,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.OnBackPressedCallback;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
@@ -23,6 +24,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
@@ -66,6 +68,17 @@ public class ChatActivity extends AppCompatActivity implements MessageAdapter.On
 
     private ListenerRegistration messagesListener;
 
+    // Message window: live listener on the newest page, older pages loaded on scroll-up
+    private static final int MESSAGE_PAGE_SIZE = 30;
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+    private static final int NEAR_BOTTOM_ITEMS = 3;
+    // Older messages kept once the user scrolls back down to the newest ones
+    private static final int MAX_HISTORY_MESSAGES = 60;
+
+    private int historyCount = 0;   // paged-in messages older than the live listener's range
+    private boolean hasOlderMessages = false;
+    private boolean isLoadingOlder = false;
+
     // Edit mode
     private boolean isEditMode = false;
     private String editingMessageId = null;
@@ -151,6 +164,17 @@ public class ChatActivity extends AppCompatActivity implements MessageAdapter.On
         layoutManager.setStackFromEnd(true); // Ensures new messages appear at the bottom
         rvMessages.setLayoutManager(layoutManager);
         rvMessages.setAdapter(messageAdapter);
+
+        rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    loadOlderMessages();
+                } else if (dy > 0 && isNearBottom()) {
+                    trimHistory();
+                }
+            }
+        });
     }
 
     private void setupClickListeners() {
@@ -209,13 +233,32 @@ public class ChatActivity extends AppCompatActivity implements MessageAdapter.On
                 });
     }
 
+    /**
+     * Fetch the newest page once to find where the live window starts, then
+     * listen from that message onward. Older history is paged in on scroll-up.
+     */
     private void listenToMessages() {
         if (TextUtils.isEmpty(conversationId)) {
             Log.w(TAG, "Cannot listen to messages: conversationId is empty.");
             return;
         }
 
-        Query query = chatService.getMessages(conversationId);
+        chatService.getLatestMessages(conversationId, MESSAGE_PAGE_SIZE).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (isFinishing() || isDestroyed()) return;
+
+                    DocumentSnapshot windowStart = null;
+                    if (!snapshot.isEmpty()) {
+                        windowStart = snapshot.getDocuments().get(0);
+                    }
+                    hasOlderMessages = snapshot.size() >= MESSAGE_PAGE_SIZE;
+                    attachLiveListener(windowStart);
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to load latest messages", e));
+    }
+
+    private void attachLiveListener(@Nullable DocumentSnapshot windowStart) {
+        Query query = chatService.getMessagesFrom(conversationId, windowStart);
 
         messagesListener = query.addSnapshotListener((snapshots, error) -> {
             if (error != null) {
@@ -224,51 +267,133 @@ public class ChatActivity extends AppCompatActivity implements MessageAdapter.On
             }
 
             if (snapshots != null) {
+                boolean wasNearBottom = isNearBottom();
+                boolean added = false;
+
+                // Live messages sit after the paged-in history, so listener indexes are offset by historyCount
                 for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                    Message message = dc.getDocument().toObject(Message.class);
-                    message.setId(dc.getDocument().getId());
+                    Message message = toMessage(dc.getDocument());
 
                     switch (dc.getType()) {
-                        case ADDED:
-                            messageList.add(message);
-                            messageAdapter.notifyItemInserted(messageList.size() - 1);
-                            rvMessages.scrollToPosition(messageList.size() - 1);
+                        case ADDED: {
+                            int position = historyCount + dc.getNewIndex();
+                            messageList.add(position, message);
+                            messageAdapter.notifyItemInserted(position);
+                            added = true;
                             break;
+                        }
 
-                        case MODIFIED:
-                            for (int i = 0; i < messageList.size(); i++) {
-                                if (TextUtils.equals(messageList.get(i).getId(), message.getId())) {
-                                    messageList.set(i, message);
-                                    messageAdapter.notifyItemChanged(i);
-                                    break;
-                                }
+                        case MODIFIED: {
+                            int from = historyCount + dc.getOldIndex();
+                            int to = historyCount + dc.getNewIndex();
+                            if (from != to) {
+                                messageList.remove(from);
+                                messageList.add(to, message);
+                                messageAdapter.notifyItemMoved(from, to);
+                            } else {
+                                messageList.set(to, message);
                             }
+                            messageAdapter.notifyItemChanged(to);
                             break;
+                        }
 
-                        case REMOVED:
-                            for (int i = 0; i < messageList.size(); i++) {
-                                if (TextUtils.equals(messageList.get(i).getId(), message.getId())) {
-                                    messageList.remove(i);
-                                    messageAdapter.notifyItemRemoved(i);
-                                    break;
-                                }
-                            }
+                        case REMOVED: {
+                            int position = historyCount + dc.getOldIndex();
+                            messageList.remove(position);
+                            messageAdapter.notifyItemRemoved(position);
                             break;
+                        }
                     }
                 }
 
-                // Empty state visibility
-                if (messageList.isEmpty()) {
-                    emptyState.setVisibility(View.VISIBLE);
-                    rvMessages.setVisibility(View.GONE);
-                } else {
-                    emptyState.setVisibility(View.GONE);
-                    rvMessages.setVisibility(View.VISIBLE);
+                if (wasNearBottom) {
+                    if (added) rvMessages.scrollToPosition(messageList.size() - 1);
+                    trimHistory();
                 }
+
+                updateEmptyState();
             }
         });
     }
 
+    /**
+     * Prepend the page of messages just before the oldest one loaded
+     */
+    private void loadOlderMessages() {
+        if (isLoadingOlder || !hasOlderMessages || messageList.isEmpty()
+                || TextUtils.isEmpty(conversationId)) {
+            return;
+        }
+
+        Message oldest = messageList.get(0);
+        if (oldest.getTimestamp() == null || oldest.getId() == null) {
+            hasOlderMessages = false;
+            return;
+        }
+
+        isLoadingOlder = true;
+        chatService.getMessagesBefore(conversationId, oldest.getTimestamp(), oldest.getId(), MESSAGE_PAGE_SIZE).get()
+                .addOnSuccessListener(snapshot -> {
+                    isLoadingOlder = false;
+                    if (isFinishing() || isDestroyed()) return;
+
+                    List<Message> page = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        page.add(toMessage(doc));
+                    }
+                    hasOlderMessages = page.size() >= MESSAGE_PAGE_SIZE;
+                    if (page.isEmpty()) return;
+
+                    messageList.addAll(0, page);
+                    historyCount += page.size();
+                    messageAdapter.notifyItemRangeInserted(0, page.size());
+                })
+                .addOnFailureListener(e -> {
+                    isLoadingOlder = false;
+                    Log.e(TAG, "Failed to load older messages", e);
+                });
+    }
+
+    /**
+     * Drop the oldest paged-in messages once the user is back at the newest ones,
+     * so scrolling far up and back does not keep the whole history in memory.
+     * Evicted messages are simply paged in again on the next scroll-up.
+     */
+    private void trimHistory() {
+        if (isLoadingOlder || historyCount <= MAX_HISTORY_MESSAGES) return;
+
+        int evict = historyCount - MAX_HISTORY_MESSAGES;
+        messageList.subList(0, evict).clear();
+        historyCount -= evict;
+        hasOlderMessages = true;
+        messageAdapter.notifyItemRangeRemoved(0, evict);
+    }
+
+    private boolean isNearBottom() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) rvMessages.getLayoutManager();
+        if (layoutManager == null || messageList.isEmpty()) return true;
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        return lastVisible == RecyclerView.NO_POSITION
+                || lastVisible >= messageList.size() - 1 - NEAR_BOTTOM_ITEMS;
+    }
+
+    private Message toMessage(DocumentSnapshot doc) {
+        Message message = doc.toObject(Message.class);
+        if (message == null) message = new Message();
+        message.setId(doc.getId());
+        return message;
+    }
+
+    private void updateEmptyState() {
+        if (messageList.isEmpty()) {
+            emptyState.setVisibility(View.VISIBLE);
+            rvMessages.setVisibility(View.GONE);
+        } else {
+            emptyState.setVisibility(View.GONE);
+            rvMessages.setVisibility(View.VISIBLE);
+        }
+    }
+
     private void sendMessage() {
         String messageText = etMessage.getText().toString().trim();
 
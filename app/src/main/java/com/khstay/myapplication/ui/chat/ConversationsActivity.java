@@ -7,23 +7,26 @@ import android.view.View;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentChange;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.data.firebase.NotificationService;
+import com.khstay.myapplication.data.firebase.UserProfileResolver;
 import com.khstay.myapplication.ui.chat.adapter.ConversationAdapter;
 import com.khstay.myapplication.ui.chat.model.Conversation;
+import com.khstay.myapplication.utils.KeyedSnapshotList;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class ConversationsActivity extends AppCompatActivity {
 
@@ -34,11 +37,14 @@ public class ConversationsActivity extends AppCompatActivity {
     private LinearLayout emptyState;
 
     private ConversationAdapter conversationAdapter;
-    private List<Conversation> conversationList = new ArrayList<>();
+    private final KeyedSnapshotList<Conversation> conversations =
+            new KeyedSnapshotList<>(this::parseConversation);
+    // Profiles the current snapshot still needs, collected while parsing
+    private final Set<String> unresolvedUserIds = new HashSet<>();
 
     private NotificationService.ChatService chatService;
     private FirebaseAuth auth;
-    private FirebaseFirestore db;
+    private UserProfileResolver userProfileResolver;
     private String currentUserId;
 
     private ListenerRegistration conversationsListener;
@@ -50,8 +56,8 @@ public class ConversationsActivity extends AppCompatActivity {
 
         // Initialize Firebase
         auth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
         chatService = new NotificationService.ChatService();
+        userProfileResolver = UserProfileResolver.getInstance();
 
         if (auth.getCurrentUser() == null) {
             finish();
@@ -73,7 +79,7 @@ public class ConversationsActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        conversationAdapter = new ConversationAdapter(conversationList, conversation -> {
+        conversationAdapter = new ConversationAdapter(conversations.items(), conversation -> {
             // Open chat with this conversation
             Intent intent = new Intent(this, ChatActivity.class);
             intent.putExtra(ChatActivity.EXTRA_OTHER_USER_ID, conversation.getOtherUserId());
@@ -101,74 +107,13 @@ public class ConversationsActivity extends AppCompatActivity {
             }
 
             if (snapshots != null) {
-                for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                    Conversation conversation = dc.getDocument().toObject(Conversation.class);
-                    conversation.setId(dc.getDocument().getId());
-
-                    // ✅ CHECK IF DELETED FOR CURRENT USER
-                    Map<String, Object> deletedFor = (Map<String, Object>)
-                            dc.getDocument().get("deletedFor");
-
-                    if (deletedFor != null && deletedFor.containsKey(currentUserId)) {
-                        Boolean isDeleted = (Boolean) deletedFor.get(currentUserId);
-                        if (isDeleted != null && isDeleted) {
-                            // Skip this conversation - it's deleted for this user
-                            // But remove it from list if it was already there
-                            for (int i = 0; i < conversationList.size(); i++) {
-                                if (conversationList.get(i).getId().equals(conversation.getId())) {
-                                    conversationList.remove(i);
-                                    conversationAdapter.notifyItemRemoved(i);
-                                    break;
-                                }
-                            }
-                            continue;
-                        }
-                    }
-
-                    // Determine the other user ID
-                    String otherUserId = null;
-                    for (String participantId : conversation.getParticipantIds()) {
-                        if (!participantId.equals(currentUserId)) {
-                            otherUserId = participantId;
-                            break;
-                        }
-                    }
+                unresolvedUserIds.clear();
+                conversations.apply(snapshots, new AdapterListUpdateCallback(conversationAdapter));
 
-                    if (otherUserId != null) {
-                        conversation.setOtherUserId(otherUserId);
-                        loadOtherUserInfo(conversation, otherUserId);
-                    }
-
-                    switch (dc.getType()) {
-                        case ADDED:
-                            conversationList.add(0, conversation);
-                            conversationAdapter.notifyItemInserted(0);
-                            break;
-                        case MODIFIED:
-                            // Find and update
-                            for (int i = 0; i < conversationList.size(); i++) {
-                                if (conversationList.get(i).getId().equals(conversation.getId())) {
-                                    conversationList.set(i, conversation);
-                                    conversationAdapter.notifyItemChanged(i);
-                                    break;
-                                }
-                            }
-                            break;
-                        case REMOVED:
-                            // Find and remove
-                            for (int i = 0; i < conversationList.size(); i++) {
-                                if (conversationList.get(i).getId().equals(conversation.getId())) {
-                                    conversationList.remove(i);
-                                    conversationAdapter.notifyItemRemoved(i);
-                                    break;
-                                }
-                            }
-                            break;
-                    }
-                }
+                loadOtherUserInfo(new HashSet<>(unresolvedUserIds));
 
                 // Show/hide empty state
-                if (conversationList.isEmpty()) {
+                if (conversations.isEmpty()) {
                     emptyState.setVisibility(View.VISIBLE);
                     rvConversations.setVisibility(View.GONE);
                 } else {
@@ -179,21 +124,79 @@ public class ConversationsActivity extends AppCompatActivity {
         });
     }
 
-    private void loadOtherUserInfo(Conversation conversation, String userId) {
-        db.collection("users").document(userId)
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        String name = doc.getString("displayName");
-                        String photo = doc.getString("photoUrl");
+    /**
+     * Conversations deleted for the current user get no row
+     */
+    @Nullable
+    private Conversation parseConversation(DocumentSnapshot doc) {
+        Map<String, Object> deletedFor = (Map<String, Object>) doc.get("deletedFor");
+        if (deletedFor != null && Boolean.TRUE.equals(deletedFor.get(currentUserId))) {
+            return null;
+        }
+
+        Conversation conversation = doc.toObject(Conversation.class);
+        if (conversation == null) return null;
+        conversation.setId(doc.getId());
+
+        // Determine the other user ID
+        String otherUserId = null;
+        if (conversation.getParticipantIds() != null) {
+            for (String participantId : conversation.getParticipantIds()) {
+                if (!participantId.equals(currentUserId)) {
+                    otherUserId = participantId;
+                    break;
+                }
+            }
+        }
+
+        if (otherUserId != null) {
+            conversation.setOtherUserId(otherUserId);
+            if (!applyCachedUserInfo(conversation)) {
+                unresolvedUserIds.add(otherUserId);
+            }
+        }
+        return conversation;
+    }
+
+    /**
+     * Fill in the other user's name and photo from the profile cache.
+     * Returns false when the profile still has to be fetched.
+     */
+    private boolean applyCachedUserInfo(Conversation conversation) {
+        UserProfileResolver.UserProfile profile = userProfileResolver.getCached(conversation.getOtherUserId());
+        if (profile == null) return false;
+        applyUserInfo(conversation, profile);
+        return true;
+    }
+
+    private void applyUserInfo(Conversation conversation, UserProfileResolver.UserProfile profile) {
+        if (!profile.exists()) return;
+        String name = profile.getDisplayName();
+        conversation.setOtherUserName(name != null ? name : "User");
+        conversation.setOtherUserPhoto(profile.getPhotoUrl());
+    }
+
+    /**
+     * Resolve all missing profiles of one snapshot in a single batched lookup,
+     * then rebind only the rows that belong to those users.
+     */
+    private void loadOtherUserInfo(Set<String> userIds) {
+        if (userIds.isEmpty()) return;
+
+        userProfileResolver.resolve(userIds)
+                .addOnSuccessListener(profiles -> {
+                    if (isFinishing() || isDestroyed()) return;
 
-                        conversation.setOtherUserName(name != null ? name : "User");
-                        conversation.setOtherUserPhoto(photo);
+                    for (int i = 0; i < conversations.size(); i++) {
+                        Conversation conversation = conversations.get(i);
+                        UserProfileResolver.UserProfile profile = profiles.get(conversation.getOtherUserId());
+                        if (profile == null || !profile.exists()) continue;
 
-                        // Update adapter
-                        conversationAdapter.notifyDataSetChanged();
+                        applyUserInfo(conversation, profile);
+                        conversationAdapter.notifyItemChanged(i);
                     }
-                });
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to load user info", e));
     }
 
     @Override
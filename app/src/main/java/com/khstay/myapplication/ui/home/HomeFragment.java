@@ -30,12 +30,16 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 import com.khstay.myapplication.R;
+import com.khstay.myapplication.data.firebase.CacheFirstReader;
 import com.khstay.myapplication.data.repository.RentalRepository;
 import com.khstay.myapplication.ui.rental.PostRentalActivity;
 import com.khstay.myapplication.ui.rental.adapters.NearbyRentalAdapter;
 import com.khstay.myapplication.ui.rental.adapters.PopularRentalAdapter;
 import com.khstay.myapplication.ui.rental.model.Rental;
+import com.khstay.myapplication.utils.HomeFeedSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -46,6 +50,11 @@ public class HomeFragment extends Fragment {
     private static final int LOCATION_PERMISSION_CODE = 1001;
     private static final int POPULAR_LIMIT = 5;
     private static final int NEARBY_LIMIT = 5;
+    // "See all" still gets a bounded list instead of the whole collection
+    private static final int NEARBY_SEE_ALL_LIMIT = 50;
+    // Start with a small radius and widen it until enough rentals are found
+    private static final double NEARBY_START_RADIUS_M = 5_000;
+    private static final double NEARBY_MAX_RADIUS_M = 80_000;
 
     // Views
     private RecyclerView rvPopular, rvNearby;
@@ -67,6 +76,9 @@ public class HomeFragment extends Fragment {
     private FirebaseFirestore db;
     private FusedLocationProviderClient fusedLocationClient;
     private Location userLocation;
+    // Bumped per nearby load so callbacks of an older load are ignored
+    private int nearbyGeneration;
+    private boolean nearbyFromServer;
 
     public HomeFragment() {}
 
@@ -86,9 +98,9 @@ public class HomeFragment extends Fragment {
         setupRecyclerViews();
         setupClickListeners();
 
-        // Load data
-        loadUserProfile();
-        checkLocationPermissionAndLoad();
+        // Last session's lists show at once; onResume fetches fresh data in parallel
+        restoreFeedSnapshot();
+        requestLocationPermissionIfNeeded();
 
         return v;
     }
@@ -107,13 +119,13 @@ public class HomeFragment extends Fragment {
     }
 
     private void setupRecyclerViews() {
-        popularAdapter = new PopularRentalAdapter(popularList);
+        popularAdapter = new PopularRentalAdapter();
         rvPopular.setLayoutManager(
                 new LinearLayoutManager(getContext(), LinearLayoutManager.HORIZONTAL, false));
         rvPopular.setHasFixedSize(true);
         rvPopular.setAdapter(popularAdapter);
 
-        nearbyAdapter = new NearbyRentalAdapter(nearbyList);
+        nearbyAdapter = new NearbyRentalAdapter();
         rvNearby.setLayoutManager(new LinearLayoutManager(getContext()));
         rvNearby.setAdapter(nearbyAdapter);
     }
@@ -158,12 +170,10 @@ public class HomeFragment extends Fragment {
         }
     }
 
-    private void checkLocationPermissionAndLoad() {
+    private void requestLocationPermissionIfNeeded() {
         if (ActivityCompat.checkSelfPermission(requireContext(),
                 Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             requestPermissions(new String[]{Manifest.permission.ACCESS_FINE_LOCATION}, LOCATION_PERMISSION_CODE);
-        } else {
-            getUserLocationAndLoadData();
         }
     }
 
@@ -171,38 +181,58 @@ public class HomeFragment extends Fragment {
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
                                            @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        if (requestCode == LOCATION_PERMISSION_CODE) {
-            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                getUserLocationAndLoadData();
-            } else {
-                Toast.makeText(getContext(), "Location permission denied. Showing all rentals.", Toast.LENGTH_SHORT).show();
-                loadPopularRentals(POPULAR_LIMIT);
-                loadNearbyRentals(NEARBY_LIMIT, null);
-            }
+        // No reload here: onResume runs once the dialog closes and picks up the new permission
+        if (requestCode == LOCATION_PERMISSION_CODE
+                && (grantResults.length == 0 || grantResults[0] != PackageManager.PERMISSION_GRANTED)) {
+            Toast.makeText(getContext(), "Location permission denied. Showing all rentals.", Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void getUserLocationAndLoadData() {
+    /**
+     * Popular doesn't depend on location, so it starts right away instead of
+     * waiting for the location lookup like nearby does.
+     */
+    private void refreshFeed() {
+        loadPopularRentals(POPULAR_LIMIT);
+        loadNearbyForCurrentLocation();
+    }
+
+    private void loadNearbyForCurrentLocation() {
         if (ActivityCompat.checkSelfPermission(requireContext(),
                 Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            loadPopularRentals(POPULAR_LIMIT);
             loadNearbyRentals(NEARBY_LIMIT, null);
             return;
         }
 
         fusedLocationClient.getLastLocation()
                 .addOnSuccessListener(location -> {
+                    if (!isAdded()) return;
                     userLocation = location;
-                    loadPopularRentals(POPULAR_LIMIT);
                     loadNearbyRentals(NEARBY_LIMIT, location);
                 })
                 .addOnFailureListener(e -> {
-                    e.printStackTrace();
-                    loadPopularRentals(POPULAR_LIMIT);
-                    loadNearbyRentals(NEARBY_LIMIT, null);
+                    Log.e(TAG, "Failed to get last location", e);
+                    if (isAdded()) loadNearbyRentals(NEARBY_LIMIT, null);
                 });
     }
 
+    private void restoreFeedSnapshot() {
+        HomeFeedSnapshot.load(requireContext(), (popular, nearby) -> {
+            if (!isAdded() || getView() == null) return;
+            // Fresh data got here first
+            if (popularList.isEmpty() && !popular.isEmpty()) showPopularRentals(popular);
+            if (nearbyList.isEmpty() && !nearby.isEmpty()) {
+                showNearbyRentals(nearbyGeneration, nearby, true);
+            }
+            Log.d(TAG, "Restored " + popular.size() + " popular and " + nearby.size() + " nearby rentals from snapshot");
+        });
+    }
+
+    private void saveFeedSnapshot() {
+        if (getContext() == null) return;
+        HomeFeedSnapshot.save(getContext(), popularList, nearbyList);
+    }
+
     private void loadUserProfile() {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null || !isAdded() || getView() == null) return;
@@ -258,89 +288,135 @@ public class HomeFragment extends Fragment {
     }
 
     private void loadPopularRentals(int limit) {
-        if (shimmerPopular != null) {
-            shimmerPopular.startShimmer();
-            shimmerPopular.setVisibility(View.VISIBLE);
+        // Stale rows stay on screen while revalidating; the skeleton is only for an empty list
+        if (popularList.isEmpty()) {
+            if (shimmerPopular != null) {
+                shimmerPopular.startShimmer();
+                shimmerPopular.setVisibility(View.VISIBLE);
+            }
+            if (rvPopular != null) rvPopular.setVisibility(View.GONE);
         }
-        if (rvPopular != null) rvPopular.setVisibility(View.GONE);
 
         Query query = rentalRepository.fetchPopularRentals();
         if (limit > 0) query = query.limit(limit);
 
-        query.get()
-                .addOnSuccessListener(qs -> {
-                    popularList.clear();
-                    for (DocumentSnapshot d : qs.getDocuments()) {
-                        Rental r = d.toObject(Rental.class);
-                        if (r != null) { r.setId(d.getId()); popularList.add(r); }
-                    }
-                    popularAdapter.notifyDataSetChanged();
+        // Cached list renders right away; the server copy replaces it when it arrives
+        CacheFirstReader.get(query, new CacheFirstReader.Callback<QuerySnapshot>() {
+            @Override
+            public void onResult(QuerySnapshot qs, boolean fromCache) {
+                if (!isAdded()) return;
+                showPopularRentals(toRentals(qs));
+                if (!fromCache) saveFeedSnapshot();
+                Log.d(TAG, "Loaded " + popularList.size() + " popular rentals" + (fromCache ? " from cache" : ""));
+            }
+
+            @Override
+            public void onError(Exception e, boolean cachedShown) {
+                Log.e(TAG, "Failed to load popular rentals", e);
+                if (!isAdded() || cachedShown) return;
+                showPopularRentals(new ArrayList<>());
+            }
+        });
+    }
 
-                    if (shimmerPopular != null) { shimmerPopular.stopShimmer(); shimmerPopular.setVisibility(View.GONE); }
-                    if (rvPopular != null) rvPopular.setVisibility(View.VISIBLE);
+    private void showPopularRentals(List<Rental> rentals) {
+        popularList.clear();
+        popularList.addAll(rentals);
+        // Diffed in the background; rows that didn't change aren't rebound
+        popularAdapter.submitList(new ArrayList<>(rentals));
 
-                    Log.d(TAG, "Loaded " + popularList.size() + " popular rentals");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load popular rentals", e);
-                    popularList.clear();
-                    popularAdapter.notifyDataSetChanged();
-                    if (shimmerPopular != null) { shimmerPopular.stopShimmer(); shimmerPopular.setVisibility(View.GONE); }
-                    if (rvPopular != null) rvPopular.setVisibility(View.VISIBLE);
-                });
+        if (shimmerPopular != null) { shimmerPopular.stopShimmer(); shimmerPopular.setVisibility(View.GONE); }
+        if (rvPopular != null) rvPopular.setVisibility(View.VISIBLE);
     }
 
     private void loadNearbyRentals(int limit, Location userLoc) {
-        if (shimmerNearby != null) {
-            shimmerNearby.startShimmer();
-            shimmerNearby.setVisibility(View.VISIBLE);
+        if (nearbyList.isEmpty()) {
+            if (shimmerNearby != null) {
+                shimmerNearby.startShimmer();
+                shimmerNearby.setVisibility(View.VISIBLE);
+            }
+            if (rvNearby != null) rvNearby.setVisibility(View.GONE);
         }
-        if (rvNearby != null) rvNearby.setVisibility(View.GONE);
 
-        Query query = rentalRepository.fetchAllActiveRentals();
-        if (limit > 0) query = query.limit(limit);
+        final int generation = ++nearbyGeneration;
+        nearbyFromServer = false;
+
+        if (userLoc != null) {
+            // Render what the local cache has for the starting radius while the server is asked
+            rentalRepository.fetchRentalsNear(userLoc.getLatitude(), userLoc.getLongitude(),
+                            NEARBY_START_RADIUS_M, limit, Source.CACHE)
+                    .addOnSuccessListener(rentals -> {
+                        if (!rentals.isEmpty()) showNearbyRentals(generation, rentals, true);
+                    });
+            loadRentalsNear(generation, userLoc, limit, NEARBY_START_RADIUS_M);
+        } else {
+            loadNewestRentals(generation, limit);
+        }
+    }
 
-        query.get()
-                .addOnSuccessListener(qs -> {
-                    nearbyList.clear();
-                    List<Rental> tempList = new ArrayList<>();
-                    for (DocumentSnapshot d : qs.getDocuments()) {
-                        Rental r = d.toObject(Rental.class);
-                        if (r != null) { r.setId(d.getId()); tempList.add(r); }
+    private void loadRentalsNear(int generation, Location userLoc, int limit, double radiusMeters) {
+        rentalRepository.fetchRentalsNear(userLoc.getLatitude(), userLoc.getLongitude(), radiusMeters, limit)
+                .addOnSuccessListener(rentals -> {
+                    if (!isAdded() || generation != nearbyGeneration) return;
+
+                    // Too few rentals around: search a wider area before giving up
+                    if (rentals.size() < limit && radiusMeters < NEARBY_MAX_RADIUS_M) {
+                        loadRentalsNear(generation, userLoc, limit, radiusMeters * 4);
+                        return;
                     }
-                    if (userLoc != null) {
-                        tempList.sort((r1, r2) -> {
-                            float dist1 = calculateDistance(userLoc, r1);
-                            float dist2 = calculateDistance(userLoc, r2);
-                            return Float.compare(dist1, dist2);
-                        });
+                    if (rentals.isEmpty()) {
+                        // Nothing within the widest radius (or rentals not geocoded yet): show newest
+                        loadNewestRentals(generation, limit);
+                        return;
                     }
-                    nearbyList.addAll(tempList);
-                    nearbyAdapter.notifyDataSetChanged();
-
-                    if (shimmerNearby != null) { shimmerNearby.stopShimmer(); shimmerNearby.setVisibility(View.GONE); }
-                    if (rvNearby != null) rvNearby.setVisibility(View.VISIBLE);
-
-                    Log.d(TAG, "Loaded " + nearbyList.size() + " nearby rentals");
+                    showNearbyRentals(generation, rentals, false);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load nearby rentals", e);
-                    nearbyList.clear();
-                    nearbyAdapter.notifyDataSetChanged();
-                    if (shimmerNearby != null) { shimmerNearby.stopShimmer(); shimmerNearby.setVisibility(View.GONE); }
-                    if (rvNearby != null) rvNearby.setVisibility(View.VISIBLE);
+                    // Geohash query unavailable (e.g. missing index): fall back to newest rentals
+                    Log.e(TAG, "Failed to load rentals near user", e);
+                    if (isAdded() && generation == nearbyGeneration) loadNewestRentals(generation, limit);
                 });
     }
 
-    private float calculateDistance(Location userLoc, Rental rental) {
-        if (rental.getLatitude() == null || rental.getLongitude() == null) return Float.MAX_VALUE;
-        float[] results = new float[1];
-        Location.distanceBetween(
-                userLoc.getLatitude(), userLoc.getLongitude(),
-                rental.getLatitude(), rental.getLongitude(),
-                results
-        );
-        return results[0];
+    private void loadNewestRentals(int generation, int limit) {
+        Query query = rentalRepository.fetchAllActiveRentals().limit(limit);
+        CacheFirstReader.get(query, new CacheFirstReader.Callback<QuerySnapshot>() {
+            @Override
+            public void onResult(QuerySnapshot qs, boolean fromCache) {
+                showNearbyRentals(generation, toRentals(qs), fromCache);
+            }
+
+            @Override
+            public void onError(Exception e, boolean cachedShown) {
+                Log.e(TAG, "Failed to load nearby rentals", e);
+                if (!cachedShown) showNearbyRentals(generation, new ArrayList<>(), false);
+            }
+        });
+    }
+
+    private List<Rental> toRentals(QuerySnapshot qs) {
+        List<Rental> rentals = new ArrayList<>();
+        for (DocumentSnapshot d : qs.getDocuments()) {
+            Rental r = d.toObject(Rental.class);
+            if (r != null) { r.setId(d.getId()); rentals.add(r); }
+        }
+        return rentals;
+    }
+
+    private void showNearbyRentals(int generation, List<Rental> rentals, boolean fromCache) {
+        // Drop superseded loads, and never let a cached list overwrite the server one
+        if (!isAdded() || generation != nearbyGeneration || (fromCache && nearbyFromServer)) return;
+        if (!fromCache) nearbyFromServer = true;
+
+        nearbyList.clear();
+        nearbyList.addAll(rentals);
+        nearbyAdapter.submitList(new ArrayList<>(rentals));
+        if (!fromCache) saveFeedSnapshot();
+
+        if (shimmerNearby != null) { shimmerNearby.stopShimmer(); shimmerNearby.setVisibility(View.GONE); }
+        if (rvNearby != null) rvNearby.setVisibility(View.VISIBLE);
+
+        Log.d(TAG, "Loaded " + nearbyList.size() + " nearby rentals" + (fromCache ? " from cache" : ""));
     }
 
     private void loadAllPopular() {
@@ -349,7 +425,7 @@ public class HomeFragment extends Fragment {
     }
 
     private void loadAllNearby() {
-        loadNearbyRentals(0, userLocation);
+        loadNearbyRentals(NEARBY_SEE_ALL_LIMIT, userLocation);
         Toast.makeText(getContext(), "Loading all nearby rentals...", Toast.LENGTH_SHORT).show();
     }
 
@@ -358,13 +434,7 @@ public class HomeFragment extends Fragment {
         super.onResume();
         Log.d(TAG, "onResume - Refreshing data");
         loadUserProfile();
-        if (ActivityCompat.checkSelfPermission(requireContext(),
-                Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            getUserLocationAndLoadData();
-        } else {
-            loadPopularRentals(POPULAR_LIMIT);
-            loadNearbyRentals(NEARBY_LIMIT, null);
-        }
+        refreshFeed();
     }
 }
 
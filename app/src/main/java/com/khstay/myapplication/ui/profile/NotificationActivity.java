@@ -61,7 +61,7 @@ public class NotificationActivity extends AppCompatActivity {
 
     private void setupRecyclerView() {
         notifications = new ArrayList<>();
-        adapter = new NotificationAdapter(notifications, this::onNotificationClick);
+        adapter = new NotificationAdapter(this::onNotificationClick);
         notificationsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         notificationsRecyclerView.setAdapter(adapter);
     }
@@ -77,13 +77,15 @@ public class NotificationActivity extends AppCompatActivity {
             return;
         }
 
-        // Show loading
-        if (shimmerLoading != null) {
-            shimmerLoading.startShimmer();
-            shimmerLoading.setVisibility(View.VISIBLE);
+        // Show loading; on a refresh the current list stays up until the new one is diffed in
+        if (notifications.isEmpty()) {
+            if (shimmerLoading != null) {
+                shimmerLoading.startShimmer();
+                shimmerLoading.setVisibility(View.VISIBLE);
+            }
+            notificationsRecyclerView.setVisibility(View.GONE);
+            emptyStateText.setVisibility(View.GONE);
         }
-        notificationsRecyclerView.setVisibility(View.GONE);
-        emptyStateText.setVisibility(View.GONE);
 
         userRepository.getNotifications()
                 .get()
@@ -94,7 +96,7 @@ public class NotificationActivity extends AppCompatActivity {
                         item.setId(doc.getId()); // Set document ID
                         notifications.add(item);
                     }
-                    adapter.notifyDataSetChanged();
+                    adapter.submitList(new ArrayList<>(notifications));
 
                     // Hide loading
                     if (shimmerLoading != null) {
@@ -137,7 +139,7 @@ public class NotificationActivity extends AppCompatActivity {
                     .addOnSuccessListener(aVoid -> {
                         // Update item in list
                         item.setRead(true);
-                        adapter.notifyDataSetChanged();
+                        adapter.notifyReadChanged(item.getId());
                     });
         }
     }
@@ -6,26 +6,74 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.khstay.myapplication.R;
+import com.khstay.myapplication.utils.StableIds;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.ViewHolder> {
+public class NotificationAdapter extends ListAdapter<NotificationItem, NotificationAdapter.ViewHolder> {
 
-    private List<NotificationItem> notifications;
-    private OnNotificationClickListener listener;
+    private static final String PAYLOAD_READ = "read";
+
+    // Marking a notification read only flips the unread dot, so that change rebinds just the dot
+    private static final DiffUtil.ItemCallback<NotificationItem> DIFF = new DiffUtil.ItemCallback<NotificationItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NotificationItem oldItem, @NonNull NotificationItem newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NotificationItem oldItem, @NonNull NotificationItem newItem) {
+            return sameText(oldItem, newItem) && oldItem.isRead() == newItem.isRead();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull NotificationItem oldItem, @NonNull NotificationItem newItem) {
+            return sameText(oldItem, newItem) ? PAYLOAD_READ : null;
+        }
+
+        private boolean sameText(NotificationItem oldItem, NotificationItem newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getMessage(), newItem.getMessage())
+                    && Objects.equals(oldItem.getTimestamp(), newItem.getTimestamp());
+        }
+    };
+
+    private final OnNotificationClickListener listener;
 
     public interface OnNotificationClickListener {
         void onNotificationClick(NotificationItem item);
     }
 
-    public NotificationAdapter(List<NotificationItem> notifications, OnNotificationClickListener listener) {
-        this.notifications = notifications;
+    public NotificationAdapter(OnNotificationClickListener listener) {
+        super(DIFF);
         this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getId());
+    }
+
+    /**
+     * Rebind only the unread dot of a notification whose read flag was changed in place
+     */
+    public void notifyReadChanged(String notificationId) {
+        List<NotificationItem> items = getCurrentList();
+        for (int i = 0; i < items.size(); i++) {
+            if (Objects.equals(items.get(i).getId(), notificationId)) {
+                notifyItemChanged(i, PAYLOAD_READ);
+                return;
+            }
+        }
     }
 
     @NonNull
@@ -33,18 +81,35 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_notification, parent, false);
-        return new ViewHolder(view);
+        ViewHolder holder = new ViewHolder(view);
+        // Resolved on click, so a read-only partial rebind never leaves a stale item behind
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onNotificationClick(getItem(position));
+            }
+        });
+        return holder;
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        NotificationItem item = notifications.get(position);
-        holder.bind(item, listener);
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        boolean readOnly = !payloads.isEmpty();
+        for (Object payload : payloads) {
+            if (!PAYLOAD_READ.equals(payload)) readOnly = false;
+        }
+
+        if (readOnly) {
+            holder.bindReadState(getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
-    public int getItemCount() {
-        return notifications.size();
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.bind(getItem(position));
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -59,7 +124,7 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
             unreadIndicator = itemView.findViewById(R.id.unreadIndicator);
         }
 
-        void bind(NotificationItem item, OnNotificationClickListener listener) {
+        void bind(NotificationItem item) {
             title.setText(item.getTitle());
             message.setText(item.getMessage());
 
@@ -68,9 +133,11 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
                 timestamp.setText(sdf.format(item.getTimestamp().toDate()));
             }
 
-            unreadIndicator.setVisibility(item.isRead() ? View.GONE : View.VISIBLE);
+            bindReadState(item);
+        }
 
-            itemView.setOnClickListener(v -> listener.onNotificationClick(item));
+        void bindReadState(NotificationItem item) {
+            unreadIndicator.setVisibility(item.isRead() ? View.GONE : View.VISIBLE);
         }
     }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
+import com.khstay.myapplication.KHStayGlideModule;
 import com.khstay.myapplication.R;
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -74,6 +75,7 @@ public class RecentViewedAdapter extends RecyclerView.Adapter<RecentViewedAdapte
 
             Glide.with(itemView.getContext())
                     .load(item.getPropertyImage())
+                    .apply(KHStayGlideModule.CARD_THUMBNAIL)
                     .placeholder(R.drawable.ic_house_placeholder) // add this vector
                     .error(R.drawable.ic_house_placeholder)
                     .centerCrop()
@@ -13,6 +13,7 @@ import androidx.appcompat.app.AppCompatDelegate;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.khstay.myapplication.KHStayGlideModule;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.data.repository.UserRepository;
 
@@ -89,6 +90,7 @@ public class SettingsActivity extends AppCompatActivity {
             new Thread(() -> {
                 try {
                     com.bumptech.glide.Glide.get(this).clearDiskCache();
+                    KHStayGlideModule.resetCacheStats();
                     runOnUiThread(() ->
                             Toast.makeText(this, "Cache cleared successfully",
                                     Toast.LENGTH_SHORT).show()
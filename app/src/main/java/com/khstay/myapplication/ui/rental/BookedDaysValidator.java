@@ -0,0 +1,77 @@
+package com.khstay.myapplication.ui.rental;
+
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.material.datepicker.CalendarConstraints;
+import com.khstay.myapplication.utils.BookingCalendar;
+
+import java.util.BitSet;
+
+/**
+ * Date picker validator backed by an occupancy bitset.
+ * Days outside [minEpochDay, maxEpochDay] are disabled; when checkNights is
+ * set, days whose night is already booked are disabled too.
+ */
+public class BookedDaysValidator implements CalendarConstraints.DateValidator {
+
+    private final long startEpochDay;
+    private final long[] bookedBits;
+    private final long minEpochDay;
+    private final long maxEpochDay;
+    private final boolean checkNights;
+
+    private transient BitSet booked;
+
+    public BookedDaysValidator(long startEpochDay, long[] bookedBits,
+                               long minEpochDay, long maxEpochDay, boolean checkNights) {
+        this.startEpochDay = startEpochDay;
+        this.bookedBits = bookedBits;
+        this.minEpochDay = minEpochDay;
+        this.maxEpochDay = maxEpochDay;
+        this.checkNights = checkNights;
+    }
+
+    @Override
+    public boolean isValid(long date) {
+        long epochDay = Math.floorDiv(date, BookingCalendar.DAY_MS);
+        if (epochDay < minEpochDay || epochDay > maxEpochDay) return false;
+        if (!checkNights) return true;
+
+        if (booked == null) booked = BitSet.valueOf(bookedBits);
+        long index = epochDay - startEpochDay;
+        return index < 0 || index > Integer.MAX_VALUE || !booked.get((int) index);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeLong(startEpochDay);
+        dest.writeLongArray(bookedBits);
+        dest.writeLong(minEpochDay);
+        dest.writeLong(maxEpochDay);
+        dest.writeInt(checkNights ? 1 : 0);
+    }
+
+    public static final Creator<BookedDaysValidator> CREATOR = new Creator<BookedDaysValidator>() {
+        @Override
+        public BookedDaysValidator createFromParcel(Parcel source) {
+            return new BookedDaysValidator(
+                    source.readLong(),
+                    source.createLongArray(),
+                    source.readLong(),
+                    source.readLong(),
+                    source.readInt() == 1);
+        }
+
+        @Override
+        public BookedDaysValidator[] newArray(int size) {
+            return new BookedDaysValidator[size];
+        }
+    };
+}
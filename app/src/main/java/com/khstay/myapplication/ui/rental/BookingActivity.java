@@ -1,6 +1,5 @@
 package com.khstay.myapplication.ui.rental;
 
-import android.app.DatePickerDialog;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -13,14 +12,20 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.android.material.datepicker.CalendarConstraints;
+import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.data.firebase.BookingService;
+import com.khstay.myapplication.ui.rental.model.RentalAvailability;
+import com.khstay.myapplication.utils.BookingCalendar;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -48,6 +53,12 @@ public class BookingActivity extends AppCompatActivity {
     private double rentalPrice;
     private String ownerId;
 
+    // How far ahead guests can book; also the span of the availability bitset
+    private static final int BOOKING_WINDOW_DAYS = 365;
+
+    private RentalAvailability availability;
+    private ListenerRegistration availabilityListener;
+
     private Calendar checkInCalendar;
     private Calendar checkOutCalendar;
     private SimpleDateFormat dateFormat;
@@ -64,6 +75,7 @@ public class BookingActivity extends AppCompatActivity {
         auth = FirebaseAuth.getInstance();
         bookingService = new BookingService();
         dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        dateFormat.setTimeZone(BookingCalendar.ZONE);
 
         // Get data from intent
         rentalId = getIntent().getStringExtra(EXTRA_RENTAL_ID);
@@ -81,6 +93,7 @@ public class BookingActivity extends AppCompatActivity {
         setupClickListeners();
         displayRentalInfo();
         loadUserData();
+        listenToAvailability();
     }
 
     private void initializeViews() {
@@ -165,30 +178,93 @@ public class BookingActivity extends AppCompatActivity {
         calculateTotal();
     }
 
+    /**
+     * Keep the occupancy bitset for the bookable window up to date
+     */
+    private void listenToAvailability() {
+        long today = BookingCalendar.epochDay(new Date());
+        Date from = BookingCalendar.noonOf(today).getTime();
+        Date to = BookingCalendar.noonOf(today + BOOKING_WINDOW_DAYS).getTime();
+
+        availabilityListener = bookingService.listenToAvailability(rentalId, from, to, updated -> {
+            availability = updated;
+
+            // Someone else may have just taken part of the selected stay
+            if (checkInCalendar != null && checkOutCalendar != null
+                    && !availability.isRangeFree(BookingCalendar.epochDay(checkInCalendar),
+                    BookingCalendar.epochDay(checkOutCalendar))) {
+                checkOutCalendar = null;
+                tvCheckOutDate.setText("Select Date");
+                calculateTotal();
+                Toast.makeText(this, "Some of your dates were just booked, please pick again",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     private void showDatePicker(boolean isCheckIn) {
-        Calendar calendar = Calendar.getInstance();
-
-        DatePickerDialog picker = new DatePickerDialog(this,
-                (view, year, month, dayOfMonth) -> {
-                    Calendar selected = Calendar.getInstance();
-                    selected.set(year, month, dayOfMonth);
-
-                    if (isCheckIn) {
-                        checkInCalendar = selected;
-                        tvCheckInDate.setText(dateFormat.format(selected.getTime()));
-                    } else {
-                        checkOutCalendar = selected;
-                        tvCheckOutDate.setText(dateFormat.format(selected.getTime()));
-                    }
+        long today = BookingCalendar.epochDay(new Date());
+        long lastDay = today + BOOKING_WINDOW_DAYS;
+
+        long minDay;
+        long maxDay;
+        if (isCheckIn) {
+            minDay = today;
+            maxDay = lastDay - 1;
+        } else {
+            if (checkInCalendar == null) {
+                Toast.makeText(this, "Please select check-in date first", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // Check-out may fall on a booked day, but no booked night may lie in between
+            long checkInDay = BookingCalendar.epochDay(checkInCalendar);
+            minDay = checkInDay + 1;
+            long nextBooked = availability != null ? availability.firstBookedOnOrAfter(checkInDay) : -1;
+            maxDay = nextBooked >= 0 ? nextBooked : lastDay;
+        }
+
+        BookedDaysValidator validator = new BookedDaysValidator(
+                availability != null ? availability.getStartEpochDay() : today,
+                availability != null ? availability.toLongArray() : new long[0],
+                minDay, maxDay, isCheckIn);
+
+        CalendarConstraints constraints = new CalendarConstraints.Builder()
+                .setStart(BookingCalendar.utcMillis(minDay))
+                .setEnd(BookingCalendar.utcMillis(maxDay))
+                .setValidator(validator)
+                .build();
+
+        Calendar current = isCheckIn ? checkInCalendar : checkOutCalendar;
+        MaterialDatePicker.Builder<Long> builder = MaterialDatePicker.Builder.datePicker()
+                .setTitleText(isCheckIn ? "Check-in date" : "Check-out date")
+                .setCalendarConstraints(constraints);
+        if (current != null) {
+            builder.setSelection(BookingCalendar.utcMillis(BookingCalendar.epochDay(current)));
+        }
 
-                    calculateTotal();
-                },
-                calendar.get(Calendar.YEAR),
-                calendar.get(Calendar.MONTH),
-                calendar.get(Calendar.DAY_OF_MONTH));
+        MaterialDatePicker<Long> picker = builder.build();
+        picker.addOnPositiveButtonClickListener(selection -> {
+            Calendar selected = BookingCalendar.noonOf(Math.floorDiv(selection, BookingCalendar.DAY_MS));
+
+            if (isCheckIn) {
+                checkInCalendar = selected;
+                tvCheckInDate.setText(dateFormat.format(selected.getTime()));
+
+                // Drop a check-out that no longer forms a free stay
+                if (checkOutCalendar != null && (!checkOutCalendar.after(selected)
+                        || (availability != null && !availability.isRangeFree(
+                        BookingCalendar.epochDay(selected), BookingCalendar.epochDay(checkOutCalendar))))) {
+                    checkOutCalendar = null;
+                    tvCheckOutDate.setText("Select Date");
+                }
+            } else {
+                checkOutCalendar = selected;
+                tvCheckOutDate.setText(dateFormat.format(selected.getTime()));
+            }
 
-        picker.getDatePicker().setMinDate(System.currentTimeMillis());
-        picker.show();
+            calculateTotal();
+        });
+        picker.show(getSupportFragmentManager(), isCheckIn ? "check_in_picker" : "check_out_picker");
     }
 
     private void calculateTotal() {
@@ -230,6 +306,11 @@ public class BookingActivity extends AppCompatActivity {
             Toast.makeText(this, "Please login to book", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (availability != null && !availability.isRangeFree(
+                BookingCalendar.epochDay(checkInCalendar), BookingCalendar.epochDay(checkOutCalendar))) {
+            Toast.makeText(this, "Selected dates are no longer available", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
         btnConfirmBooking.setEnabled(false);
         btnConfirmBooking.setText("Processing...");
@@ -270,4 +351,13 @@ public class BookingActivity extends AppCompatActivity {
                     Log.e(TAG, "Booking failed", e);
                 });
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (availabilityListener != null) {
+            availabilityListener.remove();
+            availabilityListener = null;
+        }
+    }
+}
@@ -9,23 +9,21 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.data.firebase.BookingService;
+import com.khstay.myapplication.ui.rental.adapters.BookingItemCallback;
 import com.khstay.myapplication.ui.rental.adapters.BookingRequestAdapter;
 import com.khstay.myapplication.ui.rental.model.BookingRequest;
+import com.khstay.myapplication.utils.KeyedSnapshotList;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 public class BookingRequestsActivity extends AppCompatActivity {
 
@@ -36,7 +34,11 @@ public class BookingRequestsActivity extends AppCompatActivity {
     private LinearLayout emptyState;
 
     private BookingRequestAdapter bookingAdapter;
-    private final List<BookingRequest> bookingList = new ArrayList<>();
+    private final KeyedSnapshotList<BookingRequest> bookings = new KeyedSnapshotList<>(doc -> {
+        BookingRequest booking = doc.toObject(BookingRequest.class);
+        if (booking != null) booking.setId(doc.getId());
+        return booking;
+    }, BookingItemCallback.INSTANCE);
 
     private FirebaseAuth auth;
     private FirebaseFirestore db;
@@ -75,7 +77,7 @@ public class BookingRequestsActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        bookingAdapter = new BookingRequestAdapter(bookingList, new BookingRequestAdapter.OnBookingActionListener() {
+        bookingAdapter = new BookingRequestAdapter(bookings.items(), new BookingRequestAdapter.OnBookingActionListener() {
             @Override
             public void onApprove(BookingRequest booking) {
                 showApproveDialog(booking);
@@ -113,40 +115,11 @@ public class BookingRequestsActivity extends AppCompatActivity {
             }
 
             if (snapshots != null) {
-                for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                    BookingRequest booking = dc.getDocument().toObject(BookingRequest.class);
-                    booking.setId(dc.getDocument().getId());
-
-                    switch (dc.getType()) {
-                        case ADDED:
-                            bookingList.add(0, booking);
-                            bookingAdapter.notifyItemInserted(0);
-                            break;
-                        case MODIFIED:
-                            // Find and update
-                            for (int i = 0; i < bookingList.size(); i++) {
-                                if (bookingList.get(i).getId().equals(booking.getId())) {
-                                    bookingList.set(i, booking);
-                                    bookingAdapter.notifyItemChanged(i);
-                                    break;
-                                }
-                            }
-                            break;
-                        case REMOVED:
-                            // Find and remove
-                            for (int i = 0; i < bookingList.size(); i++) {
-                                if (bookingList.get(i).getId().equals(booking.getId())) {
-                                    bookingList.remove(i);
-                                    bookingAdapter.notifyItemRemoved(i);
-                                    break;
-                                }
-                            }
-                            break;
-                    }
-                }
+                // Changes land at the indices Firestore reports; status-only changes rebind just the badge
+                bookings.apply(snapshots, new AdapterListUpdateCallback(bookingAdapter));
 
                 // Show/hide empty state
-                if (bookingList.isEmpty()) {
+                if (bookings.isEmpty()) {
                     emptyState.setVisibility(View.VISIBLE);
                     rvBookingRequests.setVisibility(View.GONE);
                 } else {
@@ -201,18 +174,10 @@ public class BookingRequestsActivity extends AppCompatActivity {
 
     private void approveBooking(BookingRequest booking) {
         // Use BookingService to update status with notification
-        bookingService.updateBookingStatus(
-                        booking.getId(),
-                        "approved",
-                        booking.getUserId(),
-                        booking.getRentalTitle()
-                )
+        bookingService.updateBookingStatus(booking, "approved")
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Booking approved! Guest has been notified.",
                             Toast.LENGTH_SHORT).show();
-
-                    // Update rental house status to "pending" (booked)
-                    updateRentalStatus(booking.getRentalId(), "pending");
                 })
                 .addOnFailureListener(e -> {
                     Toast.makeText(this, "Failed to approve booking", Toast.LENGTH_SHORT).show();
@@ -222,12 +187,7 @@ public class BookingRequestsActivity extends AppCompatActivity {
 
     private void rejectBooking(BookingRequest booking) {
         // Use BookingService to update status with notification
-        bookingService.updateBookingStatus(
-                        booking.getId(),
-                        "rejected",
-                        booking.getUserId(),
-                        booking.getRentalTitle()
-                )
+        bookingService.updateBookingStatus(booking, "rejected")
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Booking rejected. Guest has been notified.",
                             Toast.LENGTH_SHORT).show();
@@ -249,11 +209,6 @@ public class BookingRequestsActivity extends AppCompatActivity {
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Booking removed successfully",
                             Toast.LENGTH_SHORT).show();
-
-                    // If approved booking was deleted, revert rental to active
-                    if ("approved".equals(booking.getStatus())) {
-                        updateRentalStatus(booking.getRentalId(), "active");
-                    }
                 })
                 .addOnFailureListener(e -> {
                     Toast.makeText(this, "Failed to delete booking", Toast.LENGTH_SHORT).show();
@@ -261,21 +216,6 @@ public class BookingRequestsActivity extends AppCompatActivity {
                 });
     }
 
-    private void updateRentalStatus(String rentalId, String status) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", status);
-
-        db.collection("rental_houses")
-                .document(rentalId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Rental status updated to: " + status);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update rental status", e);
-                });
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -9,21 +9,21 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.data.firebase.BookingService;
+import com.khstay.myapplication.ui.rental.adapters.BookingItemCallback;
 import com.khstay.myapplication.ui.rental.adapters.MyBookingAdapter;
 import com.khstay.myapplication.ui.rental.model.BookingRequest;
+import com.khstay.myapplication.utils.KeyedSnapshotList;
 
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Activity for renters/guests to view and manage their bookings
@@ -37,7 +37,11 @@ public class MyBookingsActivity extends AppCompatActivity {
     private LinearLayout emptyState;
 
     private MyBookingAdapter bookingAdapter;
-    private final List<BookingRequest> bookingList = new ArrayList<>();
+    private final KeyedSnapshotList<BookingRequest> bookings = new KeyedSnapshotList<>(doc -> {
+        BookingRequest booking = doc.toObject(BookingRequest.class);
+        if (booking != null) booking.setId(doc.getId());
+        return booking;
+    }, BookingItemCallback.INSTANCE);
 
     private FirebaseAuth auth;
     private FirebaseFirestore db;
@@ -76,7 +80,7 @@ public class MyBookingsActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        bookingAdapter = new MyBookingAdapter(bookingList, new MyBookingAdapter.OnBookingActionListener() {
+        bookingAdapter = new MyBookingAdapter(bookings.items(), new MyBookingAdapter.OnBookingActionListener() {
             @Override
             public void onCancel(BookingRequest booking) {
                 showCancelDialog(booking);
@@ -117,40 +121,11 @@ public class MyBookingsActivity extends AppCompatActivity {
             }
 
             if (snapshots != null) {
-                for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                    BookingRequest booking = dc.getDocument().toObject(BookingRequest.class);
-                    booking.setId(dc.getDocument().getId());
-
-                    switch (dc.getType()) {
-                        case ADDED:
-                            bookingList.add(0, booking);
-                            bookingAdapter.notifyItemInserted(0);
-                            break;
-                        case MODIFIED:
-                            // Find and update
-                            for (int i = 0; i < bookingList.size(); i++) {
-                                if (bookingList.get(i).getId().equals(booking.getId())) {
-                                    bookingList.set(i, booking);
-                                    bookingAdapter.notifyItemChanged(i);
-                                    break;
-                                }
-                            }
-                            break;
-                        case REMOVED:
-                            // Find and remove
-                            for (int i = 0; i < bookingList.size(); i++) {
-                                if (bookingList.get(i).getId().equals(booking.getId())) {
-                                    bookingList.remove(i);
-                                    bookingAdapter.notifyItemRemoved(i);
-                                    break;
-                                }
-                            }
-                            break;
-                    }
-                }
+                // Changes land at the indices Firestore reports; status-only changes rebind just the badge
+                bookings.apply(snapshots, new AdapterListUpdateCallback(bookingAdapter));
 
                 // Show/hide empty state
-                if (bookingList.isEmpty()) {
+                if (bookings.isEmpty()) {
                     emptyState.setVisibility(View.VISIBLE);
                     rvMyBookings.setVisibility(View.GONE);
                 } else {
@@ -193,7 +168,7 @@ public class MyBookingsActivity extends AppCompatActivity {
     }
 
     private void cancelBooking(BookingRequest booking) {
-        bookingService.cancelBooking(booking.getId())
+        bookingService.cancelBooking(booking)
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Booking cancelled. Owner has been notified.",
                             Toast.LENGTH_SHORT).show();
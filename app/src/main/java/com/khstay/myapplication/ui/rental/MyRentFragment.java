@@ -19,16 +19,19 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.data.repository.RentalRepository;
 import com.khstay.myapplication.ui.rental.adapters.RentalAdapter;
 import com.khstay.myapplication.ui.rental.model.Rental;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MyRentFragment extends Fragment {
 
@@ -44,7 +47,12 @@ public class MyRentFragment extends Fragment {
     private final List<Rental> visibleRentals = new ArrayList<>();
     private String currentTab = "active";
 
-    private FirebaseFirestore db;
+    // All of the owner's rentals from one listener, and the same rentals split by status
+    private final Map<String, Rental> rentalsById = new HashMap<>();
+    private final Map<String, List<Rental>> rentalsByStatus = new HashMap<>();
+    private ListenerRegistration rentalsListener;
+    private boolean rentalsLoaded;
+
     private FirebaseAuth auth;
     private RentalRepository rentalRepository;
 
@@ -70,7 +78,6 @@ public class MyRentFragment extends Fragment {
         fabAddProperty = view.findViewById(R.id.fab_add_property);
 
         // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
         rentalRepository = new RentalRepository();
 
@@ -80,12 +87,12 @@ public class MyRentFragment extends Fragment {
 
         // Load initial data
         updateChipStates(chipActive);
-        fetchRentalsForTab(currentTab);
+        listenToMyRentals();
     }
 
     private void setupRecyclerView() {
         rvRentals.setLayoutManager(new LinearLayoutManager(getContext()));
-        rentalAdapter = new RentalAdapter(getContext(), new ArrayList<>());
+        rentalAdapter = new RentalAdapter(getContext());
 
         // Enable status badge for MyRent screen
         rentalAdapter.setShowStatusBadge(true);
@@ -117,7 +124,7 @@ public class MyRentFragment extends Fragment {
             if (isChecked) {
                 currentTab = "active";
                 updateChipStates(chipActive);
-                fetchRentalsForTab(currentTab);
+                showTab(currentTab);
             }
         });
 
@@ -125,7 +132,7 @@ public class MyRentFragment extends Fragment {
             if (isChecked) {
                 currentTab = "pending";
                 updateChipStates(chipPending);
-                fetchRentalsForTab(currentTab);
+                showTab(currentTab);
             }
         });
 
@@ -133,7 +140,7 @@ public class MyRentFragment extends Fragment {
             if (isChecked) {
                 currentTab = "archived";
                 updateChipStates(chipArchived);
-                fetchRentalsForTab(currentTab);
+                showTab(currentTab);
             }
         });
     }
@@ -152,13 +159,12 @@ public class MyRentFragment extends Fragment {
         selectedChip.setChecked(true);
     }
 
-    private void fetchRentalsForTab(String statusKey) {
-        Log.d(TAG, "Fetching rentals for status: " + statusKey);
-
-        // Show skeleton loading
-        showSkeletonLoading();
-
-        // Get current user ID
+    /**
+     * One listener over all of the owner's rentals, partitioned by status in memory.
+     * Tab switches just show another partition, and archive/reactivate/delete
+     * arrive through the listener (locally first, before the server confirms).
+     */
+    private void listenToMyRentals() {
         String uid = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
 
         if (uid == null) {
@@ -168,60 +174,85 @@ public class MyRentFragment extends Fragment {
             return;
         }
 
-        // 🔑 CRITICAL: Query with composite index
-        // Index required: ownerId (ASC), status (ASC), createdAt (DESC)
-        Query query = db.collection("rental_houses")
-                .whereEqualTo("ownerId", uid)
-                .whereEqualTo("status", statusKey)
-                .orderBy("createdAt", Query.Direction.DESCENDING);
-
-        query.get()
-                .addOnSuccessListener(qs -> {
-                    visibleRentals.clear();
-
-                    for (DocumentSnapshot d : qs.getDocuments()) {
-                        Rental r = d.toObject(Rental.class);
-                        if (r != null) {
-                            r.setId(d.getId());
-                            visibleRentals.add(r);
-                        }
+        showSkeletonLoading();
+
+        // Index required: ownerId (ASC), createdAt (DESC)
+        rentalsListener = rentalRepository.getRentalsByOwnerId(uid)
+                .addSnapshotListener((snapshots, error) -> {
+                    if (!isAdded()) return;
+                    if (error != null) {
+                        Log.e(TAG, "Listen failed: " + error.getMessage(), error);
+                        // Keep what is already shown if the listener drops later on
+                        if (!rentalsLoaded) showLoadError(error);
+                        return;
                     }
+                    if (snapshots == null) return;
 
-                    // Update adapter
-                    rentalAdapter.updateList(new ArrayList<>(visibleRentals));
+                    applySnapshot(snapshots);
+                    rentalsLoaded = true;
+                    showTab(currentTab);
+                });
+    }
 
-                    // Show/hide empty state
-                    if (visibleRentals.isEmpty()) {
-                        String message = getEmptyStateMessage(statusKey);
-                        showEmptyState(message);
-                    } else {
-                        hideEmptyState();
-                    }
+    private void applySnapshot(QuerySnapshot snapshots) {
+        // Only added or modified documents are deserialized again
+        for (DocumentChange dc : snapshots.getDocumentChanges()) {
+            String id = dc.getDocument().getId();
+            if (dc.getType() == DocumentChange.Type.REMOVED) {
+                rentalsById.remove(id);
+                continue;
+            }
+            Rental rental = dc.getDocument().toObject(Rental.class);
+            rental.setId(id);
+            rentalsById.put(id, rental);
+        }
 
-                    // Hide skeleton
-                    hideSkeletonLoading();
+        // Rebuild the partitions in query order (newest first)
+        for (List<Rental> partition : rentalsByStatus.values()) partition.clear();
+        for (DocumentSnapshot d : snapshots.getDocuments()) {
+            Rental rental = rentalsById.get(d.getId());
+            if (rental == null || rental.getStatus() == null) continue;
+            rentalsByStatus.computeIfAbsent(rental.getStatus(), status -> new ArrayList<>()).add(rental);
+        }
 
-                    Log.d(TAG, "Loaded " + visibleRentals.size() + " rentals for status=" + statusKey);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Fetch failed: " + e.getMessage(), e);
-
-                    // Check if it's an index error
-                    if (e.getMessage() != null && e.getMessage().contains("FAILED_PRECONDITION")) {
-                        showEmptyState("⚠️ Database index required.\nPlease wait a few minutes and try again.");
-                        Toast.makeText(getContext(),
-                                "Setting up database. This is a one-time setup.",
-                                Toast.LENGTH_LONG).show();
-                    } else {
-                        showEmptyState("Failed to load properties.\nPlease check your connection and try again.");
-                        Toast.makeText(getContext(), "Error: " + e.getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
+        Log.d(TAG, "Loaded " + rentalsById.size() + " rentals across " + rentalsByStatus.size() + " statuses");
+    }
 
-                    visibleRentals.clear();
-                    rentalAdapter.updateList(new ArrayList<>(visibleRentals));
-                    hideSkeletonLoading();
-                });
+    private void showTab(String statusKey) {
+        if (!rentalsLoaded) return;
+        hideSkeletonLoading();
+
+        List<Rental> partition = rentalsByStatus.get(statusKey);
+        visibleRentals.clear();
+        if (partition != null) visibleRentals.addAll(partition);
+
+        // Update adapter
+        rentalAdapter.updateList(visibleRentals);
+
+        // Show/hide empty state
+        if (visibleRentals.isEmpty()) {
+            showEmptyState(getEmptyStateMessage(statusKey));
+        } else {
+            hideEmptyState();
+        }
+    }
+
+    private void showLoadError(Exception e) {
+        // Check if it's an index error
+        if (e.getMessage() != null && e.getMessage().contains("FAILED_PRECONDITION")) {
+            showEmptyState("⚠️ Database index required.\nPlease wait a few minutes and try again.");
+            Toast.makeText(getContext(),
+                    "Setting up database. This is a one-time setup.",
+                    Toast.LENGTH_LONG).show();
+        } else {
+            showEmptyState("Failed to load properties.\nPlease check your connection and try again.");
+            Toast.makeText(getContext(), "Error: " + e.getMessage(),
+                    Toast.LENGTH_SHORT).show();
+        }
+
+        visibleRentals.clear();
+        rentalAdapter.updateList(visibleRentals);
+        hideSkeletonLoading();
     }
 
     private String getEmptyStateMessage(String status) {
@@ -342,7 +373,6 @@ public class MyRentFragment extends Fragment {
         rentalRepository.updateRentalStatus(rental.getId(), "archived")
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(getContext(), "Property archived", Toast.LENGTH_SHORT).show();
-                    fetchRentalsForTab(currentTab);
                 })
                 .addOnFailureListener(e -> {
                     Toast.makeText(getContext(), "Failed to archive: " + e.getMessage(),
@@ -355,7 +385,6 @@ public class MyRentFragment extends Fragment {
         rentalRepository.updateRentalStatus(rental.getId(), "active")
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(getContext(), "Property reactivated", Toast.LENGTH_SHORT).show();
-                    fetchRentalsForTab(currentTab);
                 })
                 .addOnFailureListener(e -> {
                     Toast.makeText(getContext(), "Failed to reactivate: " + e.getMessage(),
@@ -368,7 +397,6 @@ public class MyRentFragment extends Fragment {
         rentalRepository.deleteRental(rental.getId())
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(getContext(), "Property deleted", Toast.LENGTH_SHORT).show();
-                    fetchRentalsForTab(currentTab);
                 })
                 .addOnFailureListener(e -> {
                     Toast.makeText(getContext(), "Failed to delete: " + e.getMessage(),
@@ -412,9 +440,14 @@ public class MyRentFragment extends Fragment {
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        Log.d(TAG, "onResume - Refreshing rentals for tab: " + currentTab);
-        fetchRentalsForTab(currentTab);
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (rentalsListener != null) {
+            rentalsListener.remove();
+            rentalsListener = null;
+        }
+        rentalsLoaded = false;
+        rentalsById.clear();
+        rentalsByStatus.clear();
     }
 }
\ No newline at end of file
@@ -10,22 +10,21 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.khstay.myapplication.R;
+import com.khstay.myapplication.data.firebase.BookingService;
+import com.khstay.myapplication.ui.rental.adapters.BookingItemCallback;
 import com.khstay.myapplication.ui.rental.adapters.BookingRequestAdapter;
 import com.khstay.myapplication.ui.rental.model.BookingRequest;
+import com.khstay.myapplication.utils.KeyedSnapshotList;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 public class PropertyBookingsActivity extends AppCompatActivity {
 
@@ -37,9 +36,14 @@ public class PropertyBookingsActivity extends AppCompatActivity {
     private TextView tvTitle;
 
     private BookingRequestAdapter bookingAdapter;
-    private final List<BookingRequest> bookingList = new ArrayList<>();
+    private final KeyedSnapshotList<BookingRequest> bookings = new KeyedSnapshotList<>(doc -> {
+        BookingRequest booking = doc.toObject(BookingRequest.class);
+        if (booking != null) booking.setId(doc.getId());
+        return booking;
+    }, BookingItemCallback.INSTANCE);
 
     private FirebaseFirestore db;
+    private BookingService bookingService;
     private String rentalId;
     private String rentalTitle;
     private ListenerRegistration bookingsListener;
@@ -50,6 +54,7 @@ public class PropertyBookingsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_property_bookings);
 
         db = FirebaseFirestore.getInstance();
+        bookingService = new BookingService();
 
         rentalId = getIntent().getStringExtra("RENTAL_ID");
         rentalTitle = getIntent().getStringExtra("RENTAL_TITLE");
@@ -78,7 +83,7 @@ public class PropertyBookingsActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        bookingAdapter = new BookingRequestAdapter(bookingList, new BookingRequestAdapter.OnBookingActionListener() {
+        bookingAdapter = new BookingRequestAdapter(bookings.items(), new BookingRequestAdapter.OnBookingActionListener() {
             @Override
             public void onApprove(BookingRequest booking) {
                 showApproveDialog(booking);
@@ -118,17 +123,10 @@ public class PropertyBookingsActivity extends AppCompatActivity {
     }
 
     private void deleteBooking(BookingRequest booking) {
-        db.collection("bookings")
-                .document(booking.getId())
-                .delete()
-                .addOnSuccessListener(aVoid -> {
-                    Toast.makeText(this, "Booking removed successfully", Toast.LENGTH_SHORT).show();
-
-                    // If approved booking was deleted, revert rental to active
-                    if ("approved".equals(booking.getStatus())) {
-                        updateRentalStatus(rentalId, "active");
-                    }
-                })
+        // Also reverts the rental if the booking was approved and frees its nights
+        bookingService.deleteBooking(booking.getId())
+                .addOnSuccessListener(aVoid ->
+                        Toast.makeText(this, "Booking removed successfully", Toast.LENGTH_SHORT).show())
                 .addOnFailureListener(e -> {
                     Toast.makeText(this, "Failed to delete booking", Toast.LENGTH_SHORT).show();
                     Log.e(TAG, "Delete failed", e);
@@ -151,37 +149,10 @@ public class PropertyBookingsActivity extends AppCompatActivity {
             }
 
             if (snapshots != null) {
-                for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                    BookingRequest booking = dc.getDocument().toObject(BookingRequest.class);
-                    booking.setId(dc.getDocument().getId());
-
-                    switch (dc.getType()) {
-                        case ADDED:
-                            bookingList.add(0, booking);
-                            bookingAdapter.notifyItemInserted(0);
-                            break;
-                        case MODIFIED:
-                            for (int i = 0; i < bookingList.size(); i++) {
-                                if (bookingList.get(i).getId().equals(booking.getId())) {
-                                    bookingList.set(i, booking);
-                                    bookingAdapter.notifyItemChanged(i);
-                                    break;
-                                }
-                            }
-                            break;
-                        case REMOVED:
-                            for (int i = 0; i < bookingList.size(); i++) {
-                                if (bookingList.get(i).getId().equals(booking.getId())) {
-                                    bookingList.remove(i);
-                                    bookingAdapter.notifyItemRemoved(i);
-                                    break;
-                                }
-                            }
-                            break;
-                    }
-                }
+                // Changes land at the indices Firestore reports; status-only changes rebind just the badge
+                bookings.apply(snapshots, new AdapterListUpdateCallback(bookingAdapter));
 
-                if (bookingList.isEmpty()) {
+                if (bookings.isEmpty()) {
                     emptyState.setVisibility(View.VISIBLE);
                     rvBookingRequests.setVisibility(View.GONE);
                 } else {
@@ -211,16 +182,9 @@ public class PropertyBookingsActivity extends AppCompatActivity {
     }
 
     private void approveBooking(BookingRequest booking) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", "approved");
-
-        db.collection("bookings")
-                .document(booking.getId())
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Toast.makeText(this, "Booking approved!", Toast.LENGTH_SHORT).show();
-                    updateRentalStatus(rentalId, "pending");
-                })
+        bookingService.updateBookingStatus(booking, "approved")
+                .addOnSuccessListener(aVoid ->
+                        Toast.makeText(this, "Booking approved!", Toast.LENGTH_SHORT).show())
                 .addOnFailureListener(e -> {
                     Toast.makeText(this, "Failed to approve", Toast.LENGTH_SHORT).show();
                     Log.e(TAG, "Approve failed", e);
@@ -228,12 +192,7 @@ public class PropertyBookingsActivity extends AppCompatActivity {
     }
 
     private void rejectBooking(BookingRequest booking) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", "rejected");
-
-        db.collection("bookings")
-                .document(booking.getId())
-                .update(updates)
+        bookingService.updateBookingStatus(booking, "rejected")
                 .addOnSuccessListener(aVoid ->
                         Toast.makeText(this, "Booking rejected", Toast.LENGTH_SHORT).show())
                 .addOnFailureListener(e -> {
@@ -242,19 +201,6 @@ public class PropertyBookingsActivity extends AppCompatActivity {
                 });
     }
 
-    private void updateRentalStatus(String rentalId, String status) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", status);
-
-        db.collection("rental_houses")
-                .document(rentalId)
-                .update(updates)
-                .addOnSuccessListener(aVoid ->
-                        Log.d(TAG, "Rental status updated"))
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "Failed to update rental status", e));
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -35,6 +35,8 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.common.IntentKeys;
+import com.khstay.myapplication.data.firebase.CacheFirstReader;
+import com.khstay.myapplication.data.firebase.UserProfileResolver;
 import com.khstay.myapplication.data.repository.UserRepository;
 import com.khstay.myapplication.ui.rental.adapters.ImageSliderAdapter;
 import com.khstay.myapplication.ui.rental.model.Rental;
@@ -42,6 +44,7 @@ import com.google.firebase.firestore.FieldValue;
 import com.khstay.myapplication.utils.PopularityScoreHelper;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class RentalHouseDetailActivity extends AppCompatActivity implements OnMapReadyCallback {
 
@@ -244,7 +247,7 @@ public class RentalHouseDetailActivity extends AppCompatActivity implements OnMa
                     });
         } else {
             String propertyPrice = "$" + (rental.getPrice() != null ? rental.getPrice().intValue() : 0) + "/month";
-            userRepository.addFavorite(rentalId, rental.getTitle(), rental.getImageUrl(),
+            userRepository.addFavorite(rentalId, rental.getTitle(), rental.getThumbnailUrl(),
                             propertyPrice, rental.getLocation())
                     .addOnSuccessListener(aVoid -> {
                         isFavorited = true;
@@ -274,47 +277,74 @@ public class RentalHouseDetailActivity extends AppCompatActivity implements OnMa
         }
         progressBar.setVisibility(View.GONE);
 
-        db.collection("rental_houses")
-                .document(rentalId)
-                .get()
-                .addOnSuccessListener(d -> {
-                    if (shimmerDetail != null) {
-                        shimmerDetail.stopShimmer();
-                        shimmerDetail.setVisibility(View.GONE);
+        // A cached copy (e.g. from the list just tapped) renders at once; the server copy refreshes it
+        CacheFirstReader.get(db.collection("rental_houses").document(rentalId),
+                new CacheFirstReader.Callback<DocumentSnapshot>() {
+                    @Override
+                    public void onResult(DocumentSnapshot d, boolean fromCache) {
+                        if (isFinishing() || isDestroyed()) return;
+                        showRental(d);
                     }
 
-                    if (contentLayout != null) {
-                        contentLayout.setVisibility(View.VISIBLE);
-                    }
-
-                    if (!d.exists()) {
-                        Toast.makeText(this, "Rental not found", Toast.LENGTH_SHORT).show();
-                        finish();
-                        return;
-                    }
-                    rental = d.toObject(Rental.class);
-                    if (rental == null) {
-                        Toast.makeText(this, "Failed to load rental", Toast.LENGTH_SHORT).show();
+                    @Override
+                    public void onError(Exception e, boolean cachedShown) {
+                        if (isFinishing() || isDestroyed() || cachedShown) return;
+                        if (shimmerDetail != null) {
+                            shimmerDetail.stopShimmer();
+                            shimmerDetail.setVisibility(View.GONE);
+                        }
+                        Toast.makeText(RentalHouseDetailActivity.this,
+                                "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                         finish();
-                        return;
-                    }
-                    rental.setId(d.getId());
-                    bindRentalToViews(rental);
-                    setupImageSlider(rental);
-                    fetchOwnerIfAvailable(rental.getOwnerId());
-                    updateMapMarkerIfReady();
-                    trackRecentView(rental);
-                })
-                .addOnFailureListener(e -> {
-                    if (shimmerDetail != null) {
-                        shimmerDetail.stopShimmer();
-                        shimmerDetail.setVisibility(View.GONE);
                     }
-                    Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    finish();
                 });
     }
 
+    private void showRental(DocumentSnapshot d) {
+        if (shimmerDetail != null) {
+            shimmerDetail.stopShimmer();
+            shimmerDetail.setVisibility(View.GONE);
+        }
+
+        if (contentLayout != null) {
+            contentLayout.setVisibility(View.VISIBLE);
+        }
+
+        if (!d.exists()) {
+            Toast.makeText(this, "Rental not found", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        Rental loaded = d.toObject(Rental.class);
+        if (loaded == null) {
+            Toast.makeText(this, "Failed to load rental", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        loaded.setId(d.getId());
+
+        Rental previous = rental;
+        rental = loaded;
+        bindRentalToViews(rental);
+        updateMapMarkerIfReady();
+
+        if (previous == null) {
+            setupImageSlider(rental);
+            fetchOwnerIfAvailable(rental.getOwnerId());
+            trackRecentView(rental);
+            return;
+        }
+
+        // Server refresh of a cached copy: rebuild only what changed, and count the view once
+        if (!Objects.equals(previous.getImageUrls(), rental.getImageUrls())
+                || !Objects.equals(previous.getImageUrl(), rental.getImageUrl())) {
+            setupImageSlider(rental);
+        }
+        if (!Objects.equals(previous.getOwnerId(), rental.getOwnerId())) {
+            fetchOwnerIfAvailable(rental.getOwnerId());
+        }
+    }
+
     private void setupImageSlider(Rental rental) {
         List<String> imageUrls = rental.getImageUrls();
 
@@ -364,7 +394,7 @@ public class RentalHouseDetailActivity extends AppCompatActivity implements OnMa
 
         String canonicalRentalId = rental.getId();
         String propertyName = rental.getTitle();
-        String propertyImage = rental.getImageUrl();
+        String propertyImage = rental.getThumbnailUrl();
         String propertyPrice = "$" + (rental.getPrice() != null ? rental.getPrice().intValue() : 0) + "/month";
         String propertyLocation = rental.getLocation();
 
@@ -391,12 +421,13 @@ public class RentalHouseDetailActivity extends AppCompatActivity implements OnMa
             return;
         }
 
-        userRepository.getUserById(ownerId)
-                .addOnSuccessListener((DocumentSnapshot d) -> {
-                    if (d.exists()) {
-                        ownerName = d.getString("displayName");
-                        ownerPhone = d.getString("phone");
-                        ownerAvatarUrl = d.getString("photoUrl");
+        UserProfileResolver.getInstance().resolve(ownerId)
+                .addOnSuccessListener(owner -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    if (owner.exists()) {
+                        ownerName = owner.getDisplayName();
+                        ownerPhone = owner.getPhone();
+                        ownerAvatarUrl = owner.getPhotoUrl();
 
                         tvOwnerName.setText(!TextUtils.isEmpty(ownerName) ?
                                 ownerName : getString(R.string.owner_unknown));
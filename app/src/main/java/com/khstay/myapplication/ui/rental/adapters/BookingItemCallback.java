@@ -0,0 +1,64 @@
+package com.khstay.myapplication.ui.rental.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.khstay.myapplication.ui.rental.model.BookingRequest;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bookings are the same item when their document ids match. Approving,
+ * rejecting or cancelling only changes the status, which comes with a
+ * payload so the row rebinds just its status badge and action buttons.
+ */
+public class BookingItemCallback extends DiffUtil.ItemCallback<BookingRequest> {
+
+    public static final BookingItemCallback INSTANCE = new BookingItemCallback();
+
+    public static final String PAYLOAD_STATUS = "status";
+
+    @Override
+    public boolean areItemsTheSame(@NonNull BookingRequest oldItem, @NonNull BookingRequest newItem) {
+        return Objects.equals(oldItem.getId(), newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull BookingRequest oldItem, @NonNull BookingRequest newItem) {
+        return sameDetails(oldItem, newItem)
+                && Objects.equals(oldItem.getStatus(), newItem.getStatus());
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull BookingRequest oldItem, @NonNull BookingRequest newItem) {
+        return sameDetails(oldItem, newItem) ? PAYLOAD_STATUS : null;
+    }
+
+    /**
+     * True when a bind carries only status payloads (several may be coalesced)
+     */
+    public static boolean isStatusOnly(List<Object> payloads) {
+        if (payloads.isEmpty()) return false;
+        for (Object payload : payloads) {
+            if (!PAYLOAD_STATUS.equals(payload)) return false;
+        }
+        return true;
+    }
+
+    // Everything a booking row shows except the status
+    private static boolean sameDetails(BookingRequest oldItem, BookingRequest newItem) {
+        return Objects.equals(oldItem.getRentalTitle(), newItem.getRentalTitle())
+                && Objects.equals(oldItem.getRentalPrice(), newItem.getRentalPrice())
+                && Objects.equals(oldItem.getGuestName(), newItem.getGuestName())
+                && Objects.equals(oldItem.getGuestPhone(), newItem.getGuestPhone())
+                && Objects.equals(oldItem.getGuestEmail(), newItem.getGuestEmail())
+                && Objects.equals(oldItem.getCheckInDate(), newItem.getCheckInDate())
+                && Objects.equals(oldItem.getCheckOutDate(), newItem.getCheckOutDate())
+                && Objects.equals(oldItem.getNumberOfDays(), newItem.getNumberOfDays())
+                && Objects.equals(oldItem.getTotalPrice(), newItem.getTotalPrice())
+                && Objects.equals(oldItem.getNotes(), newItem.getNotes());
+    }
+}
@@ -5,15 +5,16 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.ui.rental.model.BookingRequest;
+import com.khstay.myapplication.utils.StableIds;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -31,10 +32,25 @@ public class BookingRequestAdapter extends RecyclerView.Adapter<BookingRequestAd
         void onDelete(BookingRequest booking);
     }
 
+    /**
+     * Binds straight from the given list; its owner reports changes to this
+     * adapter, with BookingItemCallback payloads for status-only updates.
+     */
     public BookingRequestAdapter(List<BookingRequest> bookings, OnBookingActionListener listener) {
         this.bookings = bookings;
         this.listener = listener;
         this.dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(bookings.get(position).getId());
+    }
+
+    @Override
+    public int getItemCount() {
+        return bookings.size();
     }
 
     @NonNull
@@ -42,7 +58,32 @@ public class BookingRequestAdapter extends RecyclerView.Adapter<BookingRequestAd
     public BookingViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_booking_request, parent, false);
-        return new BookingViewHolder(view);
+        BookingViewHolder holder = new BookingViewHolder(view);
+
+        // Listeners look the booking up at click time, so a status-only rebind can't leave them stale
+        holder.btnApprove.setOnClickListener(v -> {
+            BookingRequest booking = bookingAt(holder);
+            if (booking != null && listener != null) listener.onApprove(booking);
+        });
+        holder.btnReject.setOnClickListener(v -> {
+            BookingRequest booking = bookingAt(holder);
+            if (booking != null && listener != null) listener.onReject(booking);
+        });
+        holder.btnDelete.setOnClickListener(v -> {
+            BookingRequest booking = bookingAt(holder);
+            if (booking != null && listener != null) listener.onDelete(booking);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BookingViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (BookingItemCallback.isStatusOnly(payloads)) {
+            bindStatus(holder, bookings.get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
@@ -76,6 +117,24 @@ public class BookingRequestAdapter extends RecyclerView.Adapter<BookingRequestAd
         double total = booking.getTotalPrice() != null ? booking.getTotalPrice() : 0.0;
         holder.tvTotalPrice.setText(String.format("💰 Total: $%.2f", total));
 
+        bindStatus(holder, booking);
+
+        // Notes
+        if (!TextUtils.isEmpty(booking.getNotes())) {
+            holder.tvNotes.setVisibility(View.VISIBLE);
+            holder.tvNotes.setText("Notes: " + booking.getNotes());
+        } else {
+            holder.tvNotes.setVisibility(View.GONE);
+        }
+    }
+
+    @Nullable
+    private BookingRequest bookingAt(BookingViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        return position != RecyclerView.NO_POSITION ? bookings.get(position) : null;
+    }
+
+    private void bindStatus(BookingViewHolder holder, BookingRequest booking) {
         // Status
         String status = booking.getStatus() != null ? booking.getStatus() : "pending";
         holder.tvStatus.setText(status.substring(0, 1).toUpperCase() + status.substring(1));
@@ -125,38 +184,6 @@ public class BookingRequestAdapter extends RecyclerView.Adapter<BookingRequestAd
             holder.btnReject.setVisibility(View.GONE);
             holder.btnDelete.setVisibility(View.VISIBLE);
         }
-
-        // Notes
-        if (!TextUtils.isEmpty(booking.getNotes())) {
-            holder.tvNotes.setVisibility(View.VISIBLE);
-            holder.tvNotes.setText("Notes: " + booking.getNotes());
-        } else {
-            holder.tvNotes.setVisibility(View.GONE);
-        }
-
-        // Action buttons
-        holder.btnApprove.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onApprove(booking);
-            }
-        });
-
-        holder.btnReject.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onReject(booking);
-            }
-        });
-
-        holder.btnDelete.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onDelete(booking);
-            }
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return bookings.size();
     }
 
     static class BookingViewHolder extends RecyclerView.ViewHolder {
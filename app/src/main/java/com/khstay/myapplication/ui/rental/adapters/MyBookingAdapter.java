@@ -9,10 +9,12 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.ui.rental.model.BookingRequest;
+import com.khstay.myapplication.utils.StableIds;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -33,10 +35,25 @@ public class MyBookingAdapter extends RecyclerView.Adapter<MyBookingAdapter.Book
         void onViewDetails(BookingRequest booking);
     }
 
+    /**
+     * Binds straight from the given list; its owner reports changes to this
+     * adapter, with BookingItemCallback payloads for status-only updates.
+     */
     public MyBookingAdapter(List<BookingRequest> bookings, OnBookingActionListener listener) {
         this.bookings = bookings;
         this.listener = listener;
         this.dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(bookings.get(position).getId());
+    }
+
+    @Override
+    public int getItemCount() {
+        return bookings.size();
     }
 
     @NonNull
@@ -44,7 +61,32 @@ public class MyBookingAdapter extends RecyclerView.Adapter<MyBookingAdapter.Book
     public BookingViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_my_booking, parent, false);
-        return new BookingViewHolder(view);
+        BookingViewHolder holder = new BookingViewHolder(view);
+
+        // Listeners look the booking up at click time, so a status-only rebind can't leave them stale
+        holder.btnCancel.setOnClickListener(v -> {
+            BookingRequest booking = bookingAt(holder);
+            if (booking != null && listener != null) listener.onCancel(booking);
+        });
+        holder.btnDelete.setOnClickListener(v -> {
+            BookingRequest booking = bookingAt(holder);
+            if (booking != null && listener != null) listener.onDelete(booking);
+        });
+        holder.itemView.setOnClickListener(v -> {
+            BookingRequest booking = bookingAt(holder);
+            if (booking != null && listener != null) listener.onViewDetails(booking);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BookingViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (BookingItemCallback.isStatusOnly(payloads)) {
+            bindStatus(holder, bookings.get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
@@ -72,6 +114,24 @@ public class MyBookingAdapter extends RecyclerView.Adapter<MyBookingAdapter.Book
         double total = booking.getTotalPrice() != null ? booking.getTotalPrice() : 0.0;
         holder.tvTotalPrice.setText(String.format("Total: $%.2f", total));
 
+        bindStatus(holder, booking);
+
+        // Notes
+        if (!TextUtils.isEmpty(booking.getNotes())) {
+            holder.tvNotes.setVisibility(View.VISIBLE);
+            holder.tvNotes.setText("💬 " + booking.getNotes());
+        } else {
+            holder.tvNotes.setVisibility(View.GONE);
+        }
+    }
+
+    @Nullable
+    private BookingRequest bookingAt(BookingViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        return position != RecyclerView.NO_POSITION ? bookings.get(position) : null;
+    }
+
+    private void bindStatus(BookingViewHolder holder, BookingRequest booking) {
         // Status
         String status = booking.getStatus() != null ? booking.getStatus() : "pending";
         holder.tvStatus.setText(status.substring(0, 1).toUpperCase() + status.substring(1));
@@ -129,38 +189,6 @@ public class MyBookingAdapter extends RecyclerView.Adapter<MyBookingAdapter.Book
             holder.btnCancel.setVisibility(View.GONE);
             holder.btnDelete.setVisibility(View.VISIBLE);
         }
-
-        // Notes
-        if (!TextUtils.isEmpty(booking.getNotes())) {
-            holder.tvNotes.setVisibility(View.VISIBLE);
-            holder.tvNotes.setText("💬 " + booking.getNotes());
-        } else {
-            holder.tvNotes.setVisibility(View.GONE);
-        }
-
-        // Action buttons
-        holder.btnCancel.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onCancel(booking);
-            }
-        });
-
-        holder.btnDelete.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onDelete(booking);
-            }
-        });
-
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onViewDetails(booking);
-            }
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return bookings.size();
     }
 
     static class BookingViewHolder extends RecyclerView.ViewHolder {
@@ -10,21 +10,27 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.khstay.myapplication.KHStayGlideModule;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.ui.rental.RentalHouseDetailActivity;
 import com.khstay.myapplication.ui.rental.model.Rental;
+import com.khstay.myapplication.utils.PopularityScoreHelper;
+import com.khstay.myapplication.utils.StableIds;
 
-import java.util.List;
+public class NearbyRentalAdapter extends ListAdapter<Rental, NearbyRentalAdapter.ViewHolder> {
 
-public class NearbyRentalAdapter extends RecyclerView.Adapter<NearbyRentalAdapter.ViewHolder> {
-
-    private final List<Rental> rentals;
+    public NearbyRentalAdapter() {
+        super(RentalItemCallback.INSTANCE);
+        setHasStableIds(true);
+    }
 
-    public NearbyRentalAdapter(List<Rental> rentals) {
-        this.rentals = rentals;
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getId());
     }
 
     @NonNull
@@ -37,7 +43,7 @@ public class NearbyRentalAdapter extends RecyclerView.Adapter<NearbyRentalAdapte
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder h, int position) {
-        Rental r = rentals.get(position);
+        Rental r = getItem(position);
 
         // Basic info
         h.tvTitle.setText(r.getTitle());
@@ -45,10 +51,11 @@ public class NearbyRentalAdapter extends RecyclerView.Adapter<NearbyRentalAdapte
         h.tvPrice.setText("$" + (r.getPrice() != null ? r.getPrice().intValue() : 0));
 
         // Image
-        String url = r.getImageUrl();
+        String url = r.getThumbnailUrl();
         if (url != null && !url.isEmpty()) {
             Glide.with(h.imgHouse.getContext())
                     .load(url)
+                    .apply(KHStayGlideModule.CARD_THUMBNAIL)
                     .placeholder(R.drawable.ic_placeholder)
                     .error(R.drawable.ic_placeholder)
                     .centerCrop()
@@ -60,7 +67,8 @@ public class NearbyRentalAdapter extends RecyclerView.Adapter<NearbyRentalAdapte
         // NEW: Popularity Stats
         int views = r.getViewCount();
         int favorites = r.getFavoriteCount();
-        double score = r.getPopularityScore();
+        // The stored score only ranks; show the activity it stands for
+        double score = PopularityScoreHelper.activityOf(r.getPopularityScore());
 
         // View count
         h.tvViews.setText(formatCount(views));
@@ -104,11 +112,6 @@ public class NearbyRentalAdapter extends RecyclerView.Adapter<NearbyRentalAdapte
         return String.valueOf(count);
     }
 
-    @Override
-    public int getItemCount() {
-        return rentals.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvTitle, tvLocation, tvPrice;
         TextView tvViews, tvFavorites, tvPopularityScore;
@@ -10,21 +10,27 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.khstay.myapplication.KHStayGlideModule;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.ui.rental.RentalHouseDetailActivity;
 import com.khstay.myapplication.ui.rental.model.Rental;
+import com.khstay.myapplication.utils.PopularityScoreHelper;
+import com.khstay.myapplication.utils.StableIds;
 
-import java.util.List;
+public class PopularRentalAdapter extends ListAdapter<Rental, PopularRentalAdapter.ViewHolder> {
 
-public class PopularRentalAdapter extends RecyclerView.Adapter<PopularRentalAdapter.ViewHolder> {
-
-    private final List<Rental> rentals;
+    public PopularRentalAdapter() {
+        super(RentalItemCallback.INSTANCE);
+        setHasStableIds(true);
+    }
 
-    public PopularRentalAdapter(List<Rental> rentals) {
-        this.rentals = rentals;
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getId());
     }
 
     @NonNull
@@ -37,7 +43,7 @@ public class PopularRentalAdapter extends RecyclerView.Adapter<PopularRentalAdap
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder h, int position) {
-        Rental r = rentals.get(position);
+        Rental r = getItem(position);
 
         // Basic info
         h.tvTitle.setText(r.getTitle());
@@ -45,10 +51,11 @@ public class PopularRentalAdapter extends RecyclerView.Adapter<PopularRentalAdap
         h.tvPrice.setText("$" + (r.getPrice() != null ? r.getPrice().intValue() : 0));
 
         // Image
-        String url = r.getImageUrl();
+        String url = r.getCardImageUrl();
         if (url != null && !url.isEmpty()) {
             Glide.with(h.imgHouse.getContext())
                     .load(url)
+                    .apply(KHStayGlideModule.CARD_THUMBNAIL)
                     .placeholder(R.drawable.ic_placeholder)
                     .error(R.drawable.ic_placeholder)
                     .centerCrop()
@@ -60,10 +67,11 @@ public class PopularRentalAdapter extends RecyclerView.Adapter<PopularRentalAdap
         // NEW: Popularity Stats
         int views = r.getViewCount();
         int favorites = r.getFavoriteCount();
-        double score = r.getPopularityScore();
+        // The stored score only ranks; show the activity it stands for
+        double score = PopularityScoreHelper.activityOf(r.getPopularityScore());
 
-        // Show popularity badge if score > 0
-        if (score > 0) {
+        // Show popularity badge once there is visible activity
+        if (score >= 1) {
             h.popularityBadge.setVisibility(View.VISIBLE);
 
             // Format score nicely
@@ -104,11 +112,6 @@ public class PopularRentalAdapter extends RecyclerView.Adapter<PopularRentalAdap
         return String.valueOf(count);
     }
 
-    @Override
-    public int getItemCount() {
-        return rentals.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvTitle, tvLocation, tvPrice;
         TextView tvViews, tvFavorites, tvPopularityScore;
@@ -1,9 +1,6 @@
 package com.khstay.myapplication.ui.rental.adapters;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,39 +8,41 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
+import com.khstay.myapplication.KHStayGlideModule;
 import com.khstay.myapplication.R;
 import com.khstay.myapplication.ui.rental.model.Rental;
+import com.khstay.myapplication.utils.StableIds;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 
-public class RentalAdapter extends RecyclerView.Adapter<RentalAdapter.RentalViewHolder> {
+public class RentalAdapter extends ListAdapter<Rental, RentalAdapter.RentalViewHolder> {
 
     private final Context context;
-    private List<Rental> rentalList;
     private OnRentalClickListener onRentalClickListener;
     private boolean showStatusBadge = true;     // MyRentFragment
     private boolean showFavoriteButton = false; // SearchFragment
-    private String imageUrl;
+
     public interface OnRentalClickListener {
         void onRentalClick(Rental rental);
         void onMoreClick(Rental rental);
         void onFavoriteClick(Rental rental);
     }
 
-    public RentalAdapter(Context context, List<Rental> rentalList) {
+    public RentalAdapter(Context context) {
+        super(RentalItemCallback.INSTANCE);
         this.context = context;
-        this.rentalList = rentalList;
+        setHasStableIds(true);
     }
 
-    public RentalAdapter(Context context, List<Rental> rentalList,
-                         boolean showStatusBadge, boolean showFavoriteButton) {
-        this.context = context;
-        this.rentalList = rentalList;
+    public RentalAdapter(Context context, boolean showStatusBadge, boolean showFavoriteButton) {
+        this(context);
         this.showStatusBadge = showStatusBadge;
         this.showFavoriteButton = showFavoriteButton;
     }
@@ -53,29 +52,82 @@ public class RentalAdapter extends RecyclerView.Adapter<RentalAdapter.RentalView
     }
 
     public void setShowStatusBadge(boolean show) {
+        if (showStatusBadge == show) return;
         this.showStatusBadge = show;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), RentalItemCallback.PAYLOAD_STATUS);
     }
 
     public void setShowFavoriteButton(boolean show) {
+        if (showFavoriteButton == show) return;
         this.showFavoriteButton = show;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount());
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getId());
     }
 
+    @NonNull
     @Override
-    public RentalViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+    public RentalViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_rental, parent, false);
-        return new RentalViewHolder(view);
+        RentalViewHolder holder = new RentalViewHolder(view);
+
+        // Listeners look the rental up at click time, so partial binds never leave them stale
+        holder.itemView.setOnClickListener(v -> {
+            Rental rental = rentalAt(holder);
+            if (rental != null && onRentalClickListener != null) onRentalClickListener.onRentalClick(rental);
+        });
+        if (holder.ivFavorite != null) {
+            holder.ivFavorite.setOnClickListener(v -> {
+                Rental rental = rentalAt(holder);
+                if (rental == null) return;
+                rental.setFavorite(!rental.isFavorite());
+                updateFavoriteIcon(holder, rental);
+                if (onRentalClickListener != null) onRentalClickListener.onFavoriteClick(rental);
+            });
+        }
+        if (holder.btnMore != null) {
+            holder.btnMore.setOnClickListener(v -> {
+                Rental rental = rentalAt(holder);
+                if (rental != null && onRentalClickListener != null) onRentalClickListener.onMoreClick(rental);
+            });
+        }
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RentalViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        Rental rental = getItem(position);
+        for (Object payload : payloads) {
+            if (RentalItemCallback.PAYLOAD_FAVORITE.equals(payload)) {
+                bindFavorite(holder, rental);
+            } else if (RentalItemCallback.PAYLOAD_STATUS.equals(payload)) {
+                bindStatus(holder, rental);
+            } else {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
     }
 
     @Override
-    public void onBindViewHolder(RentalViewHolder holder, int position) {
-        Rental rental = rentalList.get(position);
+    public void onBindViewHolder(@NonNull RentalViewHolder holder, int position) {
+        Rental rental = getItem(position);
 
         // Image
         if (rental.hasImageUrl()) {
-            loadImageFromUrl(rental.getImageUrl(), holder.ivProperty);
+            loadImageFromUrl(rental.getCardImageUrl(), holder.ivProperty);
         } else {
+            // Cancel any load still pending for the previous rental bound to this view
+            Glide.with(holder.ivProperty).clear(holder.ivProperty);
             holder.ivProperty.setImageResource(
                     rental.getImageResId() != 0 ? rental.getImageResId() : R.drawable.ic_placeholder
             );
@@ -93,56 +145,70 @@ public class RentalAdapter extends RecyclerView.Adapter<RentalAdapter.RentalView
             holder.tvBedBath.setText(bb);
         }
 
-        // Status badge
-        if (holder.tvStatus != null) {
-            if (showStatusBadge && rental.getStatus() != null && !rental.getStatus().isEmpty()) {
-                holder.tvStatus.setVisibility(View.VISIBLE);
-                holder.tvStatus.setText(rental.getStatus());
-                if (rental.getStatus().equalsIgnoreCase("Active")) {
-                    holder.tvStatus.setBackgroundResource(R.drawable.bg_status_active);
-                    holder.tvStatus.setTextColor(context.getResources().getColor(R.color.success_green));
-                } else if (rental.getStatus().equalsIgnoreCase("Pending")) {
-                    holder.tvStatus.setBackgroundResource(R.drawable.bg_status_pending);
-                    holder.tvStatus.setTextColor(context.getResources().getColor(R.color.text_secondary));
-                } else if (rental.getStatus().equalsIgnoreCase("Archived")) {
-                    holder.tvStatus.setBackgroundResource(R.drawable.bg_status_archived);
-                    holder.tvStatus.setTextColor(context.getResources().getColor(R.color.text_hint));
-                }
-            } else {
-                holder.tvStatus.setVisibility(View.GONE);
-            }
+        bindStatus(holder, rental);
+        bindFavorite(holder, rental);
+
+        // More button (MyRent)
+        if (holder.btnMore != null) {
+            holder.btnMore.setVisibility(showFavoriteButton ? View.GONE : View.VISIBLE);
         }
+    }
 
-        // Favorite button (Search)
-        if (holder.ivFavorite != null) {
-            if (showFavoriteButton) {
-                holder.ivFavorite.setVisibility(View.VISIBLE);
-                updateFavoriteIcon(holder, rental);
-                holder.ivFavorite.setOnClickListener(v -> {
-                    rental.setFavorite(!rental.isFavorite());
-                    updateFavoriteIcon(holder, rental);
-                    if (onRentalClickListener != null) onRentalClickListener.onFavoriteClick(rental);
-                });
-            } else {
-                holder.ivFavorite.setVisibility(View.GONE);
+    /**
+     * Rebind only the favorite heart of one rental, after its favorite flag was changed in place
+     */
+    public void notifyFavoriteChanged(String rentalId) {
+        List<Rental> rentals = getCurrentList();
+        for (int i = 0; i < rentals.size(); i++) {
+            if (rentals.get(i).getId() != null && rentals.get(i).getId().equals(rentalId)) {
+                notifyItemChanged(i, RentalItemCallback.PAYLOAD_FAVORITE);
+                return;
             }
         }
+    }
 
-        // More button (MyRent)
-        if (holder.btnMore != null) {
-            if (!showFavoriteButton) {
-                holder.btnMore.setVisibility(View.VISIBLE);
-                holder.btnMore.setOnClickListener(v -> {
-                    if (onRentalClickListener != null) onRentalClickListener.onMoreClick(rental);
-                });
-            } else {
-                holder.btnMore.setVisibility(View.GONE);
+    /**
+     * Rebind the favorite hearts of every row, e.g. after reloading favorite states
+     */
+    public void notifyFavoritesChanged() {
+        notifyItemRangeChanged(0, getItemCount(), RentalItemCallback.PAYLOAD_FAVORITE);
+    }
+
+    @Nullable
+    private Rental rentalAt(RentalViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        return position != RecyclerView.NO_POSITION ? getItem(position) : null;
+    }
+
+    private void bindStatus(RentalViewHolder holder, Rental rental) {
+        if (holder.tvStatus == null) return;
+        if (showStatusBadge && rental.getStatus() != null && !rental.getStatus().isEmpty()) {
+            holder.tvStatus.setVisibility(View.VISIBLE);
+            holder.tvStatus.setText(rental.getStatus());
+            if (rental.getStatus().equalsIgnoreCase("Active")) {
+                holder.tvStatus.setBackgroundResource(R.drawable.bg_status_active);
+                holder.tvStatus.setTextColor(context.getResources().getColor(R.color.success_green));
+            } else if (rental.getStatus().equalsIgnoreCase("Pending")) {
+                holder.tvStatus.setBackgroundResource(R.drawable.bg_status_pending);
+                holder.tvStatus.setTextColor(context.getResources().getColor(R.color.text_secondary));
+            } else if (rental.getStatus().equalsIgnoreCase("Archived")) {
+                holder.tvStatus.setBackgroundResource(R.drawable.bg_status_archived);
+                holder.tvStatus.setTextColor(context.getResources().getColor(R.color.text_hint));
             }
+        } else {
+            holder.tvStatus.setVisibility(View.GONE);
         }
+    }
 
-        holder.itemView.setOnClickListener(v -> {
-            if (onRentalClickListener != null) onRentalClickListener.onRentalClick(rental);
-        });
+    // Favorite button (Search)
+    private void bindFavorite(RentalViewHolder holder, Rental rental) {
+        if (holder.ivFavorite == null) return;
+        if (showFavoriteButton) {
+            holder.ivFavorite.setVisibility(View.VISIBLE);
+            updateFavoriteIcon(holder, rental);
+        } else {
+            holder.ivFavorite.setVisibility(View.GONE);
+        }
     }
 
     private void updateFavoriteIcon(RentalViewHolder holder, Rental rental) {
@@ -154,40 +220,29 @@ public class RentalAdapter extends RecyclerView.Adapter<RentalAdapter.RentalView
     }
 
     private void loadImageFromUrl(String imageUrl, ImageView imageView) {
-        imageView.setImageResource(R.drawable.ic_placeholder);
-        new ImageLoadTask(imageView).execute(imageUrl);
-    }
-
-    private static class ImageLoadTask extends AsyncTask<String, Void, Bitmap> {
-        private final ImageView imageView;
-        public ImageLoadTask(ImageView imageView) { this.imageView = imageView; }
-
-        @Override
-        protected Bitmap doInBackground(String... urls) {
-            String imageUrl = urls[0];
-            try {
-                URL url = new URL(imageUrl);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setDoInput(true);
-                connection.connect();
-                try (InputStream input = connection.getInputStream()) {
-                    return BitmapFactory.decodeStream(input);
-                }
-            } catch (Exception e) { e.printStackTrace(); return null; }
-        }
-
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            if (bitmap != null && imageView != null) imageView.setImageBitmap(bitmap);
-        }
+        // Glide sizes the decode to the ImageView, caches in memory and on disk,
+        // and replaces any earlier request on the same view
+        Glide.with(imageView)
+                .load(imageUrl)
+                .apply(KHStayGlideModule.CARD_THUMBNAIL)
+                .placeholder(R.drawable.ic_placeholder)
+                .error(R.drawable.ic_placeholder)
+                .centerCrop()
+                .into(imageView);
     }
 
     @Override
-    public int getItemCount() { return rentalList != null ? rentalList.size() : 0; }
+    public void onViewRecycled(@NonNull RentalViewHolder holder) {
+        super.onViewRecycled(holder);
+        // Stop the load for an off-screen row so it can't land on the next rental
+        Glide.with(holder.ivProperty).clear(holder.ivProperty);
+    }
 
+    /**
+     * Diff the new list against the shown one off the main thread and apply only the changes
+     */
     public void updateList(List<Rental> newList) {
-        this.rentalList = newList;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newList));
     }
 
     public static class RentalViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,59 @@
+package com.khstay.myapplication.ui.rental.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.khstay.myapplication.ui.rental.model.Rental;
+
+import java.util.Objects;
+
+/**
+ * Rentals are the same item when their document ids match, and unchanged
+ * when every field a rental card shows is equal. A change limited to the
+ * favorite heart or the status badge comes with a payload so only that
+ * view is rebound (no image reload).
+ */
+public class RentalItemCallback extends DiffUtil.ItemCallback<Rental> {
+
+    public static final RentalItemCallback INSTANCE = new RentalItemCallback();
+
+    public static final String PAYLOAD_FAVORITE = "favorite";
+    public static final String PAYLOAD_STATUS = "status";
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Rental oldItem, @NonNull Rental newItem) {
+        return Objects.equals(oldItem.getId(), newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Rental oldItem, @NonNull Rental newItem) {
+        return sameCard(oldItem, newItem)
+                && Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && oldItem.isFavorite() == newItem.isFavorite();
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull Rental oldItem, @NonNull Rental newItem) {
+        if (!sameCard(oldItem, newItem)) return null;
+        boolean statusChanged = !Objects.equals(oldItem.getStatus(), newItem.getStatus());
+        boolean favoriteChanged = oldItem.isFavorite() != newItem.isFavorite();
+        if (statusChanged && favoriteChanged) return null;
+        return statusChanged ? PAYLOAD_STATUS : PAYLOAD_FAVORITE;
+    }
+
+    // Everything on the card except the status badge and the favorite heart
+    private static boolean sameCard(Rental oldItem, Rental newItem) {
+        return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equals(oldItem.getLocation(), newItem.getLocation())
+                && Objects.equals(oldItem.getPrice(), newItem.getPrice())
+                && Objects.equals(oldItem.getCardImageUrl(), newItem.getCardImageUrl())
+                && Objects.equals(oldItem.getThumbnailUrl(), newItem.getThumbnailUrl())
+                && Objects.equals(oldItem.getBedrooms(), newItem.getBedrooms())
+                && Objects.equals(oldItem.getBathrooms(), newItem.getBathrooms())
+                && Objects.equals(oldItem.getViewCount(), newItem.getViewCount())
+                && Objects.equals(oldItem.getFavoriteCount(), newItem.getFavoriteCount())
+                && Objects.equals(oldItem.getPopularityScore(), newItem.getPopularityScore());
+    }
+}
@@ -2,6 +2,7 @@ package com.khstay.myapplication.ui.rental.model;
 
 import androidx.annotation.Keep;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import java.util.List;
 import java.util.ArrayList;
@@ -14,10 +15,16 @@ import java.util.ArrayList;
 @IgnoreExtraProperties
 public class Rental {
 
+    // Upload widths of the image variants stored per photo
+    public static final int THUMBNAIL_WIDTH_PX = 320;
+    public static final int CARD_WIDTH_PX = 720;
+    public static final int FULL_WIDTH_PX = 1600;
+
     // ===== Firestore fields =====
     private String id;
     private String title;
     private String location;
+    private String commune;
     private Double price;
     private String status;
     private Boolean isPopular;
@@ -27,6 +34,8 @@ public class Rental {
     // Images support
     private String imageUrl;
     private List<String> imageUrls;
+    private List<String> thumbnailUrls;   // THUMBNAIL_WIDTH_PX variants, same order as imageUrls
+    private List<String> cardImageUrls;   // CARD_WIDTH_PX variants, same order as imageUrls
 
     // Location
     private Double latitude;
@@ -99,6 +108,9 @@ public class Rental {
     public String getLocation() { return location; }
     public void setLocation(String location) { this.location = location; }
 
+    public String getCommune() { return commune; }
+    public void setCommune(String commune) { this.commune = commune; }
+
     public Double getPrice() { return price; }
     public void setPrice(Double price) { this.price = price; }
 
@@ -135,6 +147,34 @@ public class Rental {
         }
     }
 
+    public List<String> getThumbnailUrls() { return thumbnailUrls; }
+    public void setThumbnailUrls(List<String> thumbnailUrls) { this.thumbnailUrls = thumbnailUrls; }
+
+    public List<String> getCardImageUrls() { return cardImageUrls; }
+    public void setCardImageUrls(List<String> cardImageUrls) { this.cardImageUrls = cardImageUrls; }
+
+    /**
+     * Smallest stored variant of the primary image for small thumbnails.
+     * Falls back to the full image for listings uploaded before variants existed.
+     */
+    @Exclude
+    public String getThumbnailUrl() {
+        return firstOr(thumbnailUrls, imageUrl);
+    }
+
+    /**
+     * Card-sized variant of the primary image for list items
+     */
+    @Exclude
+    public String getCardImageUrl() {
+        return firstOr(cardImageUrls, imageUrl);
+    }
+
+    private static String firstOr(List<String> urls, String fallback) {
+        if (urls != null && !urls.isEmpty() && urls.get(0) != null) return urls.get(0);
+        return fallback;
+    }
+
     public Double getLatitude() { return latitude; }
     public void setLatitude(Double latitude) { this.latitude = latitude; }
 
@@ -202,6 +242,15 @@ public class Rental {
         return (!bedText.isEmpty() && !bathText.isEmpty()) ? (bedText + " · " + bathText) : (bedText + bathText);
     }
 
+    /**
+     * Commune is the first part of a "Commune, District, City" location
+     */
+    public static String communeFromLocation(String location) {
+        if (location == null || location.isEmpty()) return null;
+        String commune = location.split(",")[0].trim();
+        return commune.isEmpty() ? null : commune;
+    }
+
     public boolean hasImageUrl() {
         return imageUrl != null && !imageUrl.trim().isEmpty();
     }
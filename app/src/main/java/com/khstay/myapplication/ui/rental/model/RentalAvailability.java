@@ -0,0 +1,103 @@
+package com.khstay.myapplication.ui.rental.model;
+
+import androidx.annotation.Nullable;
+
+import com.khstay.myapplication.utils.BookingCalendar;
+
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Booked nights of one rental over a fixed window of days, one bit per night.
+ * Bit i set means the night starting on startEpochDay + i is held by a
+ * pending or approved booking.
+ */
+public class RentalAvailability {
+
+    private final long startEpochDay;
+    private final int dayCount;
+    private final BitSet booked;
+
+    public RentalAvailability(long startEpochDay, int dayCount) {
+        this(startEpochDay, dayCount, new BitSet(dayCount));
+    }
+
+    private RentalAvailability(long startEpochDay, int dayCount, BitSet booked) {
+        this.startEpochDay = startEpochDay;
+        this.dayCount = dayCount;
+        this.booked = booked;
+    }
+
+    /**
+     * Replace the bits of one month with the "days" map of its availability
+     * document (null when the document was removed or does not exist).
+     */
+    public void applyMonth(String monthKey, @Nullable Map<String, Object> days) {
+        int year = Integer.parseInt(monthKey.substring(0, 4));
+        int month = Integer.parseInt(monthKey.substring(5, 7)) - 1;
+
+        long firstDay = BookingCalendar.epochDay(year, month, 1);
+        Calendar calendar = Calendar.getInstance(BookingCalendar.ZONE);
+        calendar.clear();
+        calendar.set(year, month, 1);
+        int daysInMonth = calendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+
+        int from = clampIndex(firstDay);
+        int to = clampIndex(firstDay + daysInMonth);
+        if (from < to) booked.clear(from, to);
+
+        if (days == null) return;
+        for (String key : days.keySet()) {
+            try {
+                long index = firstDay + Integer.parseInt(key) - 1 - startEpochDay;
+                if (index >= 0 && index < dayCount) booked.set((int) index);
+            } catch (NumberFormatException ignored) {
+                // Not a day entry
+            }
+        }
+    }
+
+    public boolean isBooked(long epochDay) {
+        long index = epochDay - startEpochDay;
+        return index >= 0 && index < dayCount && booked.get((int) index);
+    }
+
+    /**
+     * True when no night in [checkInDay, checkOutDay) is booked
+     */
+    public boolean isRangeFree(long checkInDay, long checkOutDay) {
+        int from = clampIndex(checkInDay);
+        int to = clampIndex(checkOutDay);
+        if (from >= to) return true;
+        int next = booked.nextSetBit(from);
+        return next < 0 || next >= to;
+    }
+
+    /**
+     * First booked night on or after the given day, or -1 if none in the window
+     */
+    public long firstBookedOnOrAfter(long epochDay) {
+        int next = booked.nextSetBit(clampIndex(epochDay));
+        return next < 0 ? -1 : startEpochDay + next;
+    }
+
+    public long getStartEpochDay() { return startEpochDay; }
+    public int getDayCount() { return dayCount; }
+
+    /**
+     * Compact form of the bits, e.g. for parceling into a date validator
+     */
+    public long[] toLongArray() {
+        return booked.toLongArray();
+    }
+
+    public RentalAvailability copy() {
+        return new RentalAvailability(startEpochDay, dayCount, (BitSet) booked.clone());
+    }
+
+    private int clampIndex(long epochDay) {
+        long index = epochDay - startEpochDay;
+        return (int) Math.max(0, Math.min(dayCount, index));
+    }
+}
@@ -0,0 +1,225 @@
+package com.khstay.myapplication.ui.search;
+
+import com.khstay.myapplication.ui.rental.model.Rental;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tokenized inverted index over rental title, location and description.
+ * Terms live in a sorted map so a prefix query is a range scan over matching
+ * terms instead of a substring test against every listing.
+ *
+ * Not thread-safe: SearchFragment confines every call to its search executor.
+ */
+public class RentalSearchIndex {
+
+    // Field weights used for ranking (title matches rank above description matches)
+    private static final int TITLE_WEIGHT = 3;
+    private static final int LOCATION_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Extra score when a query token is a whole term rather than just a prefix
+    private static final int EXACT_MATCH_BONUS = 2;
+
+    // Khmer is written without spaces, so cap how many syllable suffixes one run adds
+    private static final int MAX_KHMER_SUFFIXES = 32;
+
+    private static final char KHMER_COENG = '\u17D2';
+
+    // term -> (rentalId -> weight)
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // rentalId -> terms, so an update or removal only touches its own postings
+    private final Map<String, Set<String>> termsByRental = new HashMap<>();
+    private final Map<String, Rental> rentals = new LinkedHashMap<>();
+
+    /**
+     * Add or replace a rental in the index
+     */
+    public void put(Rental rental) {
+        if (rental == null || rental.getId() == null) return;
+
+        String rentalId = rental.getId();
+        removePostings(rentalId);
+        rentals.put(rentalId, rental);
+
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, rental.getTitle(), TITLE_WEIGHT);
+        addTerms(weights, rental.getLocation(), LOCATION_WEIGHT);
+        addTerms(weights, rental.getDescription(), DESCRIPTION_WEIGHT);
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Map<String, Integer> docs = postings.get(entry.getKey());
+            if (docs == null) {
+                docs = new HashMap<>();
+                postings.put(entry.getKey(), docs);
+            }
+            docs.put(rentalId, entry.getValue());
+        }
+        termsByRental.put(rentalId, new HashSet<>(weights.keySet()));
+    }
+
+    public void remove(String rentalId) {
+        if (rentalId == null) return;
+        removePostings(rentalId);
+        rentals.remove(rentalId);
+    }
+
+    public void clear() {
+        postings.clear();
+        termsByRental.clear();
+        rentals.clear();
+    }
+
+    public int size() {
+        return rentals.size();
+    }
+
+    /**
+     * Return rentals matching every token of the query, best match first.
+     * Each query token matches any indexed term it is a prefix of.
+     * An empty query returns all indexed rentals in insertion order.
+     */
+    public List<Rental> search(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>(rentals.values());
+        }
+
+        Map<String, Integer> scores = null;
+        for (String token : queryTokens) {
+            Map<String, Integer> tokenScores = scorePrefix(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                // AND semantics: keep only rentals that matched every token
+                Map<String, Integer> merged = new HashMap<>();
+                for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+                    Integer other = tokenScores.get(entry.getKey());
+                    if (other != null) merged.put(entry.getKey(), entry.getValue() + other);
+                }
+                scores = merged;
+            }
+            if (scores.isEmpty()) return new ArrayList<>();
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()));
+
+        List<Rental> results = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Integer> entry : ranked) {
+            Rental rental = rentals.get(entry.getKey());
+            if (rental != null) results.add(rental);
+        }
+        return results;
+    }
+
+    private Map<String, Integer> scorePrefix(String prefix) {
+        Map<String, Integer> scores = new HashMap<>();
+        NavigableMap<String, Map<String, Integer>> range =
+                postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+        for (Map.Entry<String, Map<String, Integer>> term : range.entrySet()) {
+            boolean exact = term.getKey().equals(prefix);
+            for (Map.Entry<String, Integer> doc : term.getValue().entrySet()) {
+                int score = doc.getValue() + (exact ? EXACT_MATCH_BONUS : 0);
+                Integer best = scores.get(doc.getKey());
+                if (best == null || score > best) scores.put(doc.getKey(), score);
+            }
+        }
+        return scores;
+    }
+
+    private void removePostings(String rentalId) {
+        Set<String> terms = termsByRental.remove(rentalId);
+        if (terms == null) return;
+
+        for (String term : terms) {
+            Map<String, Integer> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(rentalId);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            putMax(weights, token, weight);
+            if (containsKhmer(token)) {
+                for (String suffix : khmerSyllableSuffixes(token)) {
+                    putMax(weights, suffix, weight);
+                }
+            }
+        }
+    }
+
+    private static void putMax(Map<String, Integer> weights, String term, int weight) {
+        Integer current = weights.get(term);
+        if (current == null || weight > current) weights.put(term, weight);
+    }
+
+    /**
+     * Split text into lowercase terms. Letters, digits and combining marks
+     * (Khmer vowel signs, coeng, diacritics) belong to a term; everything
+     * else, including the zero-width space used between Khmer words, separates terms.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) return tokens;
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            if (isTermChar(codePoint)) {
+                current.appendCodePoint(codePoint);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (current.length() > 0) tokens.add(current.toString());
+
+        return tokens;
+    }
+
+    private static boolean isTermChar(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) return true;
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static boolean containsKhmer(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.UnicodeBlock.of(token.charAt(i)) == Character.UnicodeBlock.KHMER) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Suffixes of a Khmer run starting at each syllable (a base consonant or
+     * independent vowel not subscripted by coeng), so a query for a word in
+     * the middle of an unspaced phrase still matches by prefix.
+     */
+    private static List<String> khmerSyllableSuffixes(String token) {
+        List<String> suffixes = new ArrayList<>();
+        for (int i = 1; i < token.length() && suffixes.size() < MAX_KHMER_SUFFIXES; i++) {
+            char c = token.charAt(i);
+            boolean syllableStart = c >= '\u1780' && c <= '\u17B3'
+                    && token.charAt(i - 1) != KHMER_COENG;
+            if (syllableStart) suffixes.add(token.substring(i));
+        }
+        return suffixes;
+    }
+}
@@ -2,6 +2,8 @@ package com.khstay.myapplication.ui.search;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.InputType;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -22,8 +24,11 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.khstay.myapplication.R;
+import com.khstay.myapplication.data.firebase.CacheFirstReader;
+import com.khstay.myapplication.data.repository.RentalRepository;
 import com.khstay.myapplication.data.repository.UserRepository;
 import com.khstay.myapplication.ui.rental.RentalHouseDetailActivity;
 import com.khstay.myapplication.ui.rental.model.Rental;
@@ -32,13 +37,21 @@ import com.khstay.myapplication.ui.rental.adapters.RentalAdapter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SearchFragment extends Fragment {
 
     private static final String TAG = "SearchFragment";
+    private static final int PAGE_SIZE = 20;
+    // Start fetching the next page when this many rows are left below the viewport
+    private static final int PREFETCH_DISTANCE = 5;
+    // Pages a narrow text query may fetch on its own before the user is asked to continue
+    private static final int MAX_AUTO_PAGES = 5;
 
     // Views
     private SearchView searchView;
@@ -46,13 +59,27 @@ public class SearchFragment extends Fragment {
     private ChipGroup chipGroupCategories;
     private RecyclerView recyclerHouses;
     private View emptyState;
+    private View btnLoadMore;
     private com.facebook.shimmer.ShimmerFrameLayout shimmerLoading;
 
     // Data
     private RentalAdapter rentalAdapter;
-    private List<Rental> allRentals = new ArrayList<>();
+    private final Map<String, Rental> allRentals = new LinkedHashMap<>();
     private List<Rental> filteredRentals = new ArrayList<>();
 
+    // Paging state for the current filter set
+    private DocumentSnapshot lastPageCursor;
+    private boolean hasMoreRentals = true;
+    private boolean isLoadingPage = false;
+    private int pageGeneration = 0;
+    private int autoPagesLeft = MAX_AUTO_PAGES;
+
+    // Search index is only touched on searchExecutor; results are posted back to the UI thread
+    private RentalSearchIndex searchIndex;
+    private ExecutorService searchExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int filterGeneration = 0;
+
     // Filters
     private String currentSearchQuery = "";
     private String selectedCommune = "All";
@@ -65,7 +92,7 @@ public class SearchFragment extends Fragment {
     private Set<String> availableCommunes = new HashSet<>();
 
     // Firebase & Repository
-    private FirebaseFirestore db;
+    private RentalRepository rentalRepository;
     private UserRepository userRepository;
 
     // Track favorite states
@@ -82,8 +109,10 @@ public class SearchFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
+        rentalRepository = new RentalRepository();
         userRepository = new UserRepository();
+        searchIndex = new RentalSearchIndex();
+        searchExecutor = Executors.newSingleThreadExecutor();
 
         initializeViews(view);
         setupRecyclerView();
@@ -100,6 +129,7 @@ public class SearchFragment extends Fragment {
         chipGroupCategories = view.findViewById(R.id.chipGroupCategories);
         recyclerHouses = view.findViewById(R.id.recyclerHouses);
         emptyState = view.findViewById(R.id.emptyState);
+        btnLoadMore = view.findViewById(R.id.btnLoadMore);
 
         // Initialize shimmer - will be null if not in layout yet
         try {
@@ -110,10 +140,23 @@ public class SearchFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        recyclerHouses.setLayoutManager(new LinearLayoutManager(getContext()));
-        rentalAdapter = new RentalAdapter(getContext(), filteredRentals, false, true);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        recyclerHouses.setLayoutManager(layoutManager);
+        rentalAdapter = new RentalAdapter(getContext(), false, true);
         recyclerHouses.setAdapter(rentalAdapter);
 
+        // Fetch the next page as the user nears the end of the list
+        recyclerHouses.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= layoutManager.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
         rentalAdapter.setOnRentalClickListener(new RentalAdapter.OnRentalClickListener() {
             @Override
             public void onRentalClick(Rental rental) {
@@ -148,11 +191,14 @@ public class SearchFragment extends Fragment {
                     .addOnSuccessListener(aVoid -> {
                         favoriteStates.put(rentalId, false);
                         rental.setFavorite(false);
-                        rentalAdapter.notifyDataSetChanged();
+                        rentalAdapter.notifyFavoriteChanged(rentalId);
                         Toast.makeText(getContext(), "Removed from favorites", Toast.LENGTH_SHORT).show();
                     })
                     .addOnFailureListener(e -> {
                         Log.e(TAG, "Failed to remove favorite", e);
+                        // Undo the heart the adapter already flipped
+                        rental.setFavorite(true);
+                        rentalAdapter.notifyFavoriteChanged(rentalId);
                         Toast.makeText(getContext(), "Failed to update favorites", Toast.LENGTH_SHORT).show();
                     });
         } else {
@@ -161,18 +207,20 @@ public class SearchFragment extends Fragment {
             userRepository.addFavorite(
                             rentalId,
                             rental.getTitle(),
-                            rental.getImageUrl(),
+                            rental.getThumbnailUrl(),
                             propertyPrice,
                             rental.getLocation()
                     )
                     .addOnSuccessListener(aVoid -> {
                         favoriteStates.put(rentalId, true);
                         rental.setFavorite(true);
-                        rentalAdapter.notifyDataSetChanged();
+                        rentalAdapter.notifyFavoriteChanged(rentalId);
                         Toast.makeText(getContext(), "Added to favorites", Toast.LENGTH_SHORT).show();
                     })
                     .addOnFailureListener(e -> {
                         Log.e(TAG, "Failed to add favorite", e);
+                        rental.setFavorite(false);
+                        rentalAdapter.notifyFavoriteChanged(rentalId);
                         Toast.makeText(getContext(), "Failed to update favorites", Toast.LENGTH_SHORT).show();
                     });
         }
@@ -193,12 +241,12 @@ public class SearchFragment extends Fragment {
                         });
 
                         // Update rental objects with favorite state
-                        for (Rental rental : allRentals) {
-                            if (rental.getId() != null) {
-                                boolean isFav = favoriteStates.getOrDefault(rental.getId(), false);
-                                rental.setFavorite(isFav);
-                            }
+                        for (Rental rental : allRentals.values()) {
+                            boolean isFav = favoriteStates.getOrDefault(rental.getId(), false);
+                            rental.setFavorite(isFav);
                         }
+                        // Flags changed in place, so the list diff can't see them; rebind just the hearts
+                        rentalAdapter.notifyFavoritesChanged();
 
                         // Refresh UI
                         filterRentals();
@@ -213,32 +261,36 @@ public class SearchFragment extends Fragment {
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
-                currentSearchQuery = query;
-                filterRentals();
+                onQueryChanged(query);
                 return true;
             }
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                currentSearchQuery = newText;
-                filterRentals();
+                onQueryChanged(newText);
                 return true;
             }
         });
 
         searchView.setOnCloseListener(() -> {
-            currentSearchQuery = "";
-            filterRentals();
+            onQueryChanged("");
             return false;
         });
     }
 
+    private void onQueryChanged(String query) {
+        if (!query.equals(currentSearchQuery)) autoPagesLeft = MAX_AUTO_PAGES;
+        currentSearchQuery = query;
+        filterRentals();
+    }
+
     private void setupCommuneChips() {
         chipGroupCategories.removeAllViews();
 
         // Add "All" chip
-        Chip chipAll = createChip("All", true);
+        Chip chipAll = createChip("All", false);
         chipGroupCategories.addView(chipAll);
+        Chip chipSelected = chipAll;
 
         // Add chips for each available commune
         List<String> sortedCommunes = new ArrayList<>(availableCommunes);
@@ -247,6 +299,7 @@ public class SearchFragment extends Fragment {
         for (String commune : sortedCommunes) {
             Chip chip = createChip(commune, false);
             chipGroupCategories.addView(chip);
+            if (commune.equals(selectedCommune)) chipSelected = chip;
         }
 
         // Add "Add New" chip at the end
@@ -256,7 +309,6 @@ public class SearchFragment extends Fragment {
         // Set up chip selection listener
         chipGroupCategories.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == View.NO_ID) {
-                selectedCommune = "All";
                 chipAll.setChecked(true);
             } else {
                 Chip selectedChip = group.findViewById(checkedId);
@@ -265,13 +317,17 @@ public class SearchFragment extends Fragment {
                     chipGroupCategories.clearCheck();
                     showAddCommuneDialog();
                 } else if (selectedChip != null) {
-                    selectedCommune = selectedChip.getText().toString();
-                    filterRentals();
+                    String commune = selectedChip.getText().toString();
+                    if (!commune.equals(selectedCommune)) {
+                        selectedCommune = commune;
+                        loadRentals();
+                    }
                 }
             }
         });
 
-        chipAll.setChecked(true);
+        // Rebuilding the chips keeps the current selection instead of resetting to "All"
+        chipSelected.setChecked(true);
     }
 
     private Chip createChip(String text, boolean checked) {
@@ -326,10 +382,26 @@ public class SearchFragment extends Fragment {
     private void setupButtons() {
         btnFilter.setOnClickListener(v -> showFilterDialog());
         btnSort.setOnClickListener(v -> showSortDialog());
+        btnLoadMore.setOnClickListener(v -> {
+            autoPagesLeft = MAX_AUTO_PAGES;
+            btnLoadMore.setVisibility(View.GONE);
+            loadNextPage();
+        });
     }
 
+    /**
+     * Start over from the first page, e.g. after a commune, price, bedroom or sort change
+     */
     private void loadRentals() {
-        Log.d(TAG, "Loading all active rentals from Firestore");
+        pageGeneration++;
+        lastPageCursor = null;
+        hasMoreRentals = true;
+        isLoadingPage = false;
+        autoPagesLeft = MAX_AUTO_PAGES;
+        allRentals.clear();
+
+        final RentalSearchIndex index = searchIndex;
+        searchExecutor.execute(index::clear);
 
         // Show skeleton
         if (shimmerLoading != null) {
@@ -339,132 +411,180 @@ public class SearchFragment extends Fragment {
         recyclerHouses.setVisibility(View.GONE);
         emptyState.setVisibility(View.GONE);
 
-        db.collection("rental_houses")
-                .whereEqualTo("status", "active")
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    allRentals.clear();
-                    availableCommunes.clear();
-
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        Rental rental = doc.toObject(Rental.class);
-                        if (rental != null) {
-                            rental.setId(doc.getId());
-                            allRentals.add(rental);
-
-                            // Extract commune from location
-                            String location = rental.getLocation();
-                            if (location != null && !location.isEmpty()) {
-                                // Try to extract commune name from location
-                                // Assuming format like "Commune Name, District, City"
-                                String[] parts = location.split(",");
-                                if (parts.length > 0) {
-                                    String commune = parts[0].trim();
-                                    if (!commune.isEmpty()) {
-                                        availableCommunes.add(commune);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    Log.d(TAG, "Loaded " + allRentals.size() + " active rentals");
-                    Log.d(TAG, "Found " + availableCommunes.size() + " unique communes");
+        loadNextPage();
+    }
 
-                    // Setup commune chips after loading data
-                    setupCommuneChips();
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMoreRentals) return;
+        isLoadingPage = true;
 
-                    // Load favorite states
-                    loadFavoriteStates();
+        final int generation = pageGeneration;
+        String commune = "All".equals(selectedCommune) ? null : selectedCommune;
+        Log.d(TAG, "Loading rentals page " + (lastPageCursor == null ? "1" : "after " + lastPageCursor.getId()));
 
-                    // Hide skeleton
-                    if (shimmerLoading != null) {
-                        shimmerLoading.stopShimmer();
-                        shimmerLoading.setVisibility(View.GONE);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load rentals", e);
+        Query query = rentalRepository.searchRentals(commune, minPrice, maxPrice, minBedrooms,
+                sortOption, lastPageCursor, PAGE_SIZE);
 
-                    // Hide skeleton on error
-                    if (shimmerLoading != null) {
-                        shimmerLoading.stopShimmer();
-                        shimmerLoading.setVisibility(View.GONE);
-                    }
+        if (lastPageCursor != null) {
+            query.get()
+                    .addOnSuccessListener(querySnapshot -> {
+                        // Filters changed while this page was in flight
+                        if (generation != pageGeneration || !isAdded()) return;
+                        onPageLoaded(querySnapshot, false, true);
+                    })
+                    .addOnFailureListener(e -> {
+                        if (generation != pageGeneration || !isAdded()) return;
+                        onPageFailed(e);
+                    });
+            return;
+        }
 
-                    updateUI();
-                });
+        // First page is cache-first so the tab renders immediately; paging stays
+        // blocked until the server copy has replaced it
+        CacheFirstReader.get(query, new CacheFirstReader.Callback<QuerySnapshot>() {
+            @Override
+            public void onResult(QuerySnapshot querySnapshot, boolean fromCache) {
+                if (generation != pageGeneration || !isAdded()) return;
+                onPageLoaded(querySnapshot, true, !fromCache);
+            }
+
+            @Override
+            public void onError(Exception e, boolean cachedShown) {
+                if (generation != pageGeneration || !isAdded()) return;
+                if (cachedShown) {
+                    // Offline: keep paging from the cached first page
+                    isLoadingPage = false;
+                    return;
+                }
+                onPageFailed(e);
+            }
+        });
     }
 
-    private void filterRentals() {
-        filteredRentals.clear();
+    private void onPageLoaded(QuerySnapshot querySnapshot, boolean firstPage, boolean isFinal) {
+        if (isFinal) isLoadingPage = false;
 
-        for (Rental rental : allRentals) {
-            if (matchesAllFilters(rental)) {
-                filteredRentals.add(rental);
-            }
+        final RentalSearchIndex index = searchIndex;
+        if (firstPage) {
+            // The server copy of the first page replaces the cached one
+            allRentals.clear();
+            searchExecutor.execute(index::clear);
         }
 
-        sortRentals();
-        updateUI();
+        List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+        hasMoreRentals = docs.size() == PAGE_SIZE;
+        if (!docs.isEmpty()) {
+            lastPageCursor = docs.get(docs.size() - 1);
+        } else if (firstPage) {
+            lastPageCursor = null;
+        }
 
-        Log.d(TAG, "Filtered to " + filteredRentals.size() + " rentals");
-    }
+        List<Rental> page = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            Rental rental = doc.toObject(Rental.class);
+            if (rental != null) {
+                rental.setId(doc.getId());
+                rental.setFavorite(favoriteStates.getOrDefault(doc.getId(), false));
+                allRentals.put(doc.getId(), rental);
+                page.add(rental);
+            }
+        }
 
-    private boolean matchesAllFilters(Rental rental) {
-        // Search query
-        if (!matchesSearchQuery(rental)) return false;
+        searchExecutor.execute(() -> {
+            for (Rental rental : page) index.put(rental);
+        });
+        filterRentals();
 
-        // Commune filter
-        if (!matchesCommune(rental)) return false;
+        Log.d(TAG, "Loaded " + page.size() + " rentals, " + allRentals.size() + " total"
+                + (isFinal ? "" : " from cache"));
 
-        // Price range
-        if (minPrice != null && (rental.getPrice() == null || rental.getPrice() < minPrice)) {
-            return false;
+        // Setup commune chips only when new communes showed up
+        if (refreshAvailableCommunes(page)) {
+            setupCommuneChips();
         }
-        if (maxPrice != null && (rental.getPrice() == null || rental.getPrice() > maxPrice)) {
-            return false;
+
+        // Hide skeleton
+        if (shimmerLoading != null) {
+            shimmerLoading.stopShimmer();
+            shimmerLoading.setVisibility(View.GONE);
         }
+    }
 
-        // Bedrooms
-        if (minBedrooms != null && (rental.getBedrooms() == null || rental.getBedrooms() < minBedrooms)) {
-            return false;
+    private void onPageFailed(Exception e) {
+        isLoadingPage = false;
+        Log.e(TAG, "Failed to load rentals", e);
+
+        // Hide skeleton on error
+        if (shimmerLoading != null) {
+            shimmerLoading.stopShimmer();
+            shimmerLoading.setVisibility(View.GONE);
         }
 
-        return true;
+        updateUI();
     }
 
-    private boolean matchesSearchQuery(Rental rental) {
-        if (currentSearchQuery == null || currentSearchQuery.trim().isEmpty()) {
-            return true;
+    private boolean refreshAvailableCommunes(List<Rental> rentals) {
+        boolean changed = false;
+        for (Rental rental : rentals) {
+            String commune = rental.getCommune() != null
+                    ? rental.getCommune()
+                    : Rental.communeFromLocation(rental.getLocation());
+            if (commune != null && availableCommunes.add(commune)) {
+                changed = true;
+            }
         }
+        if (changed) Log.d(TAG, "Found " + availableCommunes.size() + " unique communes");
+        return changed;
+    }
 
-        String query = currentSearchQuery.toLowerCase().trim();
-        String title = rental.getTitle() != null ? rental.getTitle().toLowerCase() : "";
-        String location = rental.getLocation() != null ? rental.getLocation().toLowerCase() : "";
-        String description = rental.getDescription() != null ? rental.getDescription().toLowerCase() : "";
+    /**
+     * Apply the text query to the loaded pages through the search index
+     */
+    private void filterRentals() {
+        if (searchExecutor == null || searchExecutor.isShutdown()) return;
 
-        return title.contains(query) || location.contains(query) || description.contains(query);
-    }
+        // Snapshot the inputs so a later keystroke can't change them mid-search
+        final int generation = ++filterGeneration;
+        final String query = currentSearchQuery;
+        final String sort = sortOption;
+        final RentalSearchIndex index = searchIndex;
 
-    private boolean matchesCommune(Rental rental) {
-        if (selectedCommune == null || selectedCommune.equals("All")) {
-            return true;
-        }
+        searchExecutor.execute(() -> {
+            // Index hits come back ranked by relevance; with no query they keep page order
+            List<Rental> results = index.search(query);
 
-        String location = rental.getLocation();
-        if (location == null || location.isEmpty()) {
-            return false;
-        }
+            boolean hasQuery = query != null && !query.trim().isEmpty();
+            if (hasQuery) sortRentals(results, sort);
+
+            mainHandler.post(() -> {
+                // Drop results that a newer keystroke has already superseded
+                if (generation != filterGeneration || !isAdded()) return;
+
+                filteredRentals.clear();
+                filteredRentals.addAll(results);
+                updateUI();
+
+                Log.d(TAG, "Filtered to " + filteredRentals.size() + " rentals");
 
-        // Check if location contains the selected commune
-        // Make it case-insensitive
-        return location.toLowerCase().contains(selectedCommune.toLowerCase());
+                // A narrow text query may leave too few rows to scroll; keep paging,
+                // but only for a few pages before leaving it to the load-more button
+                boolean tooFew = hasQuery && filteredRentals.size() < PAGE_SIZE && hasMoreRentals;
+                if (tooFew && autoPagesLeft > 0 && !isLoadingPage) {
+                    autoPagesLeft--;
+                    loadNextPage();
+                }
+                btnLoadMore.setVisibility(tooFew && autoPagesLeft == 0 ? View.VISIBLE : View.GONE);
+            });
+        });
     }
 
-    private void sortRentals() {
+    /**
+     * Price sorts override relevance; "newest" keeps the index ranking
+     */
+    private void sortRentals(List<Rental> rentals, String sortOption) {
         switch (sortOption) {
             case "price_low":
-                filteredRentals.sort((r1, r2) -> {
+                rentals.sort((r1, r2) -> {
                     Double p1 = r1.getPrice() != null ? r1.getPrice() : 0.0;
                     Double p2 = r2.getPrice() != null ? r2.getPrice() : 0.0;
                     return Double.compare(p1, p2);
@@ -472,7 +592,7 @@ public class SearchFragment extends Fragment {
                 break;
 
             case "price_high":
-                filteredRentals.sort((r1, r2) -> {
+                rentals.sort((r1, r2) -> {
                     Double p1 = r1.getPrice() != null ? r1.getPrice() : 0.0;
                     Double p2 = r2.getPrice() != null ? r2.getPrice() : 0.0;
                     return Double.compare(p2, p1);
@@ -481,11 +601,6 @@ public class SearchFragment extends Fragment {
 
             case "newest":
             default:
-                filteredRentals.sort((r1, r2) -> {
-                    if (r1.getCreatedAt() == null) return 1;
-                    if (r2.getCreatedAt() == null) return -1;
-                    return r2.getCreatedAt().compareTo(r1.getCreatedAt());
-                });
                 break;
         }
     }
@@ -497,8 +612,8 @@ public class SearchFragment extends Fragment {
         } else {
             emptyState.setVisibility(View.GONE);
             recyclerHouses.setVisibility(View.VISIBLE);
-            rentalAdapter.notifyDataSetChanged();
         }
+        rentalAdapter.submitList(new ArrayList<>(filteredRentals));
     }
 
     private void showSortDialog() {
@@ -514,7 +629,7 @@ public class SearchFragment extends Fragment {
                         case 1: sortOption = "price_low"; break;
                         case 2: sortOption = "price_high"; break;
                     }
-                    filterRentals();
+                    loadRentals();
                     dialog.dismiss();
                 })
                 .setNegativeButton("Cancel", null)
@@ -551,7 +666,7 @@ public class SearchFragment extends Fragment {
                         maxPrice = maxPriceStr.isEmpty() ? null : Double.parseDouble(maxPriceStr);
                         minBedrooms = minBedroomsStr.isEmpty() ? null : Integer.parseInt(minBedroomsStr);
 
-                        filterRentals();
+                        loadRentals();
                     } catch (NumberFormatException e) {
                         e.printStackTrace();
                     }
@@ -561,7 +676,7 @@ public class SearchFragment extends Fragment {
                     minPrice = null;
                     maxPrice = null;
                     minBedrooms = null;
-                    filterRentals();
+                    loadRentals();
                 })
                 .show();
     }
@@ -569,8 +684,19 @@ public class SearchFragment extends Fragment {
     @Override
     public void onResume() {
         super.onResume();
-        Log.d(TAG, "onResume - Refreshing rentals and favorites");
-        // Reload all rentals and favorite states when fragment becomes visible
-        loadRentals();
+        Log.d(TAG, "onResume - Refreshing favorites");
+        // Loaded pages are kept; only favorite states need a refresh
+        loadFavoriteStates();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        pageGeneration++;
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        allRentals.clear();
     }
 }
\ No newline at end of file
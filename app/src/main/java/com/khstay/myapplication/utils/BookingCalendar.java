@@ -0,0 +1,131 @@
+package com.khstay.myapplication.utils;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Day bucketing for the per-rental availability index.
+ * Occupancy is stored as one document per rental per month
+ * (rental_houses/{id}/availability/{yyyy-MM}) whose "days" map holds
+ * the booked nights ("01".."31") of that month.
+ */
+public class BookingCalendar {
+
+    // All rentals are in Cambodia; bucketing in one fixed zone keeps every device in agreement
+    public static final TimeZone ZONE = TimeZone.getTimeZone("Asia/Phnom_Penh");
+
+    // Upper bound on one booking, so a single transaction reads at most ~13 month documents
+    public static final int MAX_NIGHTS = 366;
+
+    public static final String DAYS_FIELD = "days";
+
+    public static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private BookingCalendar() {}
+
+    /**
+     * Nights between check-in and check-out in the booking time zone; 0 or less
+     * when check-out is not after check-in
+     */
+    public static long nightCount(Date checkIn, Date checkOut) {
+        return epochDay(checkOut) - epochDay(checkIn);
+    }
+
+    /**
+     * Nights of a stay grouped by month document id. Check-in night is included,
+     * check-out night is not, so back-to-back stays do not conflict.
+     *
+     * @throws IllegalArgumentException for a stay longer than MAX_NIGHTS, which
+     *         would otherwise be indexed only in part
+     */
+    public static Map<String, List<String>> nightsByMonth(Date checkIn, Date checkOut) {
+        if (nightCount(checkIn, checkOut) > MAX_NIGHTS) {
+            throw new IllegalArgumentException("Stays are limited to " + MAX_NIGHTS + " nights");
+        }
+
+        Map<String, List<String>> nights = new LinkedHashMap<>();
+        Calendar day = startOfDay(checkIn);
+        Calendar end = startOfDay(checkOut);
+
+        while (day.before(end)) {
+            String month = monthKey(day);
+            List<String> days = nights.get(month);
+            if (days == null) {
+                days = new ArrayList<>();
+                nights.put(month, days);
+            }
+            days.add(dayKey(day));
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return nights;
+    }
+
+    /**
+     * Midnight of the given instant's day in the booking time zone
+     */
+    public static Calendar startOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance(ZONE);
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar;
+    }
+
+    /**
+     * Days since 1970-01-01 of the calendar's date (its own time zone, not UTC)
+     */
+    public static long epochDay(Calendar day) {
+        return epochDay(day.get(Calendar.YEAR), day.get(Calendar.MONTH), day.get(Calendar.DAY_OF_MONTH));
+    }
+
+    public static long epochDay(Date date) {
+        return epochDay(startOfDay(date));
+    }
+
+    public static long epochDay(int year, int month, int dayOfMonth) {
+        Calendar utc = Calendar.getInstance(UTC);
+        utc.clear();
+        utc.set(year, month, dayOfMonth);
+        return Math.floorDiv(utc.getTimeInMillis(), DAY_MS);
+    }
+
+    /**
+     * UTC midnight of an epoch day, the form MaterialDatePicker uses for selections
+     */
+    public static long utcMillis(long epochDay) {
+        return epochDay * DAY_MS;
+    }
+
+    /**
+     * Noon of an epoch day in the booking time zone. Stored as a Timestamp,
+     * noon buckets back to the same day even with small clock offsets.
+     */
+    public static Calendar noonOf(long epochDay) {
+        Calendar utc = Calendar.getInstance(UTC);
+        utc.setTimeInMillis(utcMillis(epochDay));
+
+        Calendar day = Calendar.getInstance(ZONE);
+        day.clear();
+        day.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH), 12, 0);
+        return day;
+    }
+
+    public static String monthKey(Calendar day) {
+        return String.format(Locale.US, "%04d-%02d",
+                day.get(Calendar.YEAR), day.get(Calendar.MONTH) + 1);
+    }
+
+    public static String dayKey(Calendar day) {
+        return String.format(Locale.US, "%02d", day.get(Calendar.DAY_OF_MONTH));
+    }
+}
@@ -1,26 +1,122 @@
-
 package com.khstay.myapplication.utils;
 
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.messaging.FirebaseMessaging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The one code path that registers this device's FCM token.
+ * A user can have several devices: tokens live in users/{uid}.fcmTokens as
+ * token -> lastSeen, next to the tokens/{token}.uid reverse entry. The
+ * notification functions send to every token and prune the ones FCM reports
+ * as unregistered or that have not been seen for a long time.
+ */
 public class FcmTokenManager {
     private static final String TAG = "FcmTokenManager";
 
-    /** Clears the fcmToken field for the current user document in Firestore. */
-    public static void clearTokenForCurrentUser() {
+    public static final String TOKENS_FIELD = "fcmTokens";
+    // Pre-registry single token field; still cleared, no longer written
+    private static final String LEGACY_TOKEN_FIELD = "fcmToken";
+
+    private static final String PREFS = "fcm_token_registry";
+    private static final String KEY_UID = "uid";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_REGISTERED_AT = "registeredAt";
+
+    // lastSeen is refreshed at most this often; the server prunes tokens unseen for much longer
+    private static final long REFRESH_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+
+    private FcmTokenManager() {}
+
+    /** Fetch the current token and register it; cheap to call on every app start */
+    public static void syncCurrentToken(Context context) {
+        Context appContext = context.getApplicationContext();
+        FirebaseMessaging.getInstance().getToken()
+                .addOnSuccessListener(token -> registerToken(appContext, token))
+                .addOnFailureListener(e -> Log.w(TAG, "Fetching FCM token failed", e));
+    }
+
+    /**
+     * Record the token for the signed-in user. Skipped when this user already
+     * registered the same token recently, so repeated callers cost no writes.
+     */
+    public static synchronized void registerToken(Context context, String token) {
+        FirebaseAuth auth = FirebaseAuth.getInstance();
+        if (auth.getCurrentUser() == null || token == null) return;
+        String uid = auth.getCurrentUser().getUid();
+
+        SharedPreferences prefs = prefs(context);
+        long now = System.currentTimeMillis();
+        if (uid.equals(prefs.getString(KEY_UID, null))
+                && token.equals(prefs.getString(KEY_TOKEN, null))
+                && now - prefs.getLong(KEY_REGISTERED_AT, 0) < REFRESH_INTERVAL_MS) {
+            Log.d(TAG, "FCM token unchanged; skip write");
+            return;
+        }
+        // Claimed before the write so concurrent callers skip it; undone if the write fails
+        prefs.edit()
+                .putString(KEY_UID, uid)
+                .putString(KEY_TOKEN, token)
+                .putLong(KEY_REGISTERED_AT, now)
+                .apply();
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        WriteBatch batch = db.batch();
+        batch.update(db.collection("users").document(uid),
+                FieldPath.of(TOKENS_FIELD, token), FieldValue.serverTimestamp());
+
+        Map<String, Object> owner = new HashMap<>();
+        owner.put("uid", uid);
+        owner.put("lastSeen", FieldValue.serverTimestamp());
+        batch.set(db.collection("tokens").document(token), owner);
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "FCM token registered"))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "FCM token registration failed", e);
+                    prefs.edit().remove(KEY_REGISTERED_AT).apply();
+                });
+    }
+
+    /** Removes this device's token from the current user so pushes stop reaching it. */
+    public static void clearTokenForCurrentUser(@NonNull Context context) {
         FirebaseAuth auth = FirebaseAuth.getInstance();
         if (auth.getCurrentUser() == null) return;
         String uid = auth.getCurrentUser().getUid();
 
-        FirebaseFirestore.getInstance()
-                .collection("users")
-                .document(uid)
-                .update("fcmToken", null)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Cleared fcmToken for " + uid))
-                .addOnFailureListener(e -> Log.e(TAG, "Failed clearing fcmToken", e));
+        SharedPreferences prefs = prefs(context);
+        String token = prefs.getString(KEY_TOKEN, null);
+        prefs.edit().clear().apply();
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        WriteBatch batch = db.batch();
+        if (token != null) {
+            batch.update(db.collection("users").document(uid),
+                    FieldPath.of(TOKENS_FIELD, token), FieldValue.delete(),
+                    FieldPath.of(LEGACY_TOKEN_FIELD), FieldValue.delete());
+            batch.delete(db.collection("tokens").document(token));
+        } else {
+            batch.update(db.collection("users").document(uid), LEGACY_TOKEN_FIELD, FieldValue.delete());
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Cleared FCM token for " + uid))
+                .addOnFailureListener(e -> Log.e(TAG, "Failed clearing FCM token", e));
     }
-}
 
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,167 @@
+package com.khstay.myapplication.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geohash helpers for nearby queries.
+ * A geohash prefix is a lat/lng cell, so "everything near a point" becomes a
+ * handful of string range queries on the "geohash" field.
+ */
+public class GeoHashUtils {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double METERS_PER_DEGREE = 111320.0;
+    private static final double EARTH_RADIUS_M = 6371008.8;
+
+    // Precision stored on rental documents (~1.2m x 0.6m cells)
+    public static final int STORED_PRECISION = 10;
+
+    private GeoHashUtils() {}
+
+    /**
+     * Encode a coordinate as a geohash of the given length
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0, ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) { ch = (ch << 1) | 1; minLng = mid; }
+                else { ch = ch << 1; maxLng = mid; }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) { ch = (ch << 1) | 1; minLat = mid; }
+                else { ch = ch << 1; maxLat = mid; }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, STORED_PRECISION);
+    }
+
+    /**
+     * Geohash prefixes whose cells together cover a circle of radiusMeters.
+     * Picks the finest precision whose cells are still at least radiusMeters
+     * across, then returns the center cell plus its 8 neighbours (deduplicated).
+     */
+    public static List<String> coveringPrefixes(double latitude, double longitude, double radiusMeters) {
+        int precision = precisionForRadius(latitude, radiusMeters);
+        double cellHeight = cellHeightDegrees(precision);
+        double cellWidth = cellWidthDegrees(precision);
+
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLng = -1; dLng <= 1; dLng++) {
+                double lat = clamp(latitude + dLat * cellHeight, -90, 90);
+                double lng = wrapLongitude(longitude + dLng * cellWidth);
+                prefixes.add(encode(lat, lng, precision));
+            }
+        }
+        return new ArrayList<>(prefixes);
+    }
+
+    /**
+     * The 32 cells one character finer than prefix, in geohash (and so query) order
+     */
+    public static List<String> childPrefixes(String prefix) {
+        List<String> children = new ArrayList<>(BASE32.length());
+        for (int i = 0; i < BASE32.length(); i++) {
+            children.add(prefix + BASE32.charAt(i));
+        }
+        return children;
+    }
+
+    /**
+     * Distance in meters from a point to the nearest point of a geohash cell,
+     * 0 when the point is inside it. Clamps in degrees, which is close enough
+     * to the true nearest point for cells far from the poles.
+     */
+    public static double distanceToCellMeters(double latitude, double longitude, String prefix) {
+        double[] bounds = decodeBounds(prefix);
+        double lat = clamp(latitude, bounds[0], bounds[1]);
+        double lng = clamp(longitude, bounds[2], bounds[3]);
+        return distanceMeters(latitude, longitude, lat, lng);
+    }
+
+    /**
+     * Great-circle distance in meters (haversine)
+     */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static int precisionForRadius(double latitude, double radiusMeters) {
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        for (int precision = STORED_PRECISION; precision > 1; precision--) {
+            double heightM = cellHeightDegrees(precision) * METERS_PER_DEGREE;
+            double widthM = cellWidthDegrees(precision) * METERS_PER_DEGREE * cosLat;
+            if (Math.min(heightM, widthM) >= radiusMeters) return precision;
+        }
+        return 1;
+    }
+
+    // { minLat, maxLat, minLng, maxLng } of a geohash cell
+    private static double[] decodeBounds(String prefix) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        boolean evenBit = true;
+
+        for (int i = 0; i < prefix.length(); i++) {
+            int ch = BASE32.indexOf(prefix.charAt(i));
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((ch >> bit) & 1) == 1;
+                if (evenBit) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (set) minLng = mid; else maxLng = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) minLat = mid; else maxLat = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] {minLat, maxLat, minLng, maxLng};
+    }
+
+    private static double cellHeightDegrees(int precision) {
+        int latBits = (precision * 5) / 2;
+        return 180.0 / (1L << latBits);
+    }
+
+    private static double cellWidthDegrees(int precision) {
+        int lngBits = (precision * 5 + 1) / 2;
+        return 360.0 / (1L << lngBits);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double wrapLongitude(double lng) {
+        if (lng > 180) return lng - 360;
+        if (lng < -180) return lng + 360;
+        return lng;
+    }
+}
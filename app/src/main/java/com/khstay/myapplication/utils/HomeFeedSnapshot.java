@@ -0,0 +1,156 @@
+package com.khstay.myapplication.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.khstay.myapplication.ui.rental.model.Rental;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Last-rendered popular and nearby lists of the home screen, kept in a small
+ * binary file so a cold start can show them before location or network.
+ * Only the fields the home cards bind are stored.
+ */
+public class HomeFeedSnapshot {
+
+    private static final String TAG = "HomeFeedSnapshot";
+    private static final String FILE_NAME = "home_feed.bin";
+
+    // Bump when the record layout changes; older files are then ignored
+    private static final int VERSION = 1;
+    private static final int MAX_RENTALS_PER_LIST = 20;
+
+    // One thread, so saves are written in order and never race a load
+    private static final ExecutorService io = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface OnLoadedListener {
+        void onLoaded(List<Rental> popular, List<Rental> nearby);
+    }
+
+    private HomeFeedSnapshot() {}
+
+    /**
+     * Read the snapshot off the main thread. The listener runs on the main
+     * thread, and only when a usable snapshot exists.
+     */
+    public static void load(Context context, OnLoadedListener listener) {
+        AtomicFile file = file(context);
+        io.execute(() -> {
+            List<Rental> popular = new ArrayList<>();
+            List<Rental> nearby = new ArrayList<>();
+            try (DataInputStream in = new DataInputStream(file.openRead())) {
+                if (in.readInt() != VERSION) return;
+                readList(in, popular);
+                readList(in, nearby);
+            } catch (FileNotFoundException e) {
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Discarding unreadable home feed snapshot", e);
+                file.delete();
+                return;
+            }
+            if (popular.isEmpty() && nearby.isEmpty()) return;
+            mainHandler.post(() -> listener.onLoaded(popular, nearby));
+        });
+    }
+
+    /**
+     * Encode on the calling thread (the lists may change right after) and write in the background
+     */
+    public static void save(Context context, List<Rental> popular, List<Rental> nearby) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(VERSION);
+            writeList(out, popular);
+            writeList(out, nearby);
+            out.flush();
+            bytes = buffer.toByteArray();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to encode home feed snapshot", e);
+            return;
+        }
+
+        AtomicFile file = file(context);
+        io.execute(() -> {
+            FileOutputStream out = null;
+            try {
+                out = file.startWrite();
+                out.write(bytes);
+                file.finishWrite(out);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write home feed snapshot", e);
+                if (out != null) file.failWrite(out);
+            }
+        });
+    }
+
+    private static AtomicFile file(Context context) {
+        return new AtomicFile(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    private static void writeList(DataOutputStream out, List<Rental> rentals) throws IOException {
+        int count = Math.min(rentals.size(), MAX_RENTALS_PER_LIST);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            Rental r = rentals.get(i);
+            writeString(out, r.getId());
+            writeString(out, r.getTitle());
+            writeString(out, r.getLocation());
+            out.writeDouble(r.getPrice() != null ? r.getPrice() : Double.NaN);
+            writeString(out, r.getThumbnailUrl());
+            writeString(out, r.getCardImageUrl());
+            out.writeInt(r.getViewCount());
+            out.writeInt(r.getFavoriteCount());
+            out.writeDouble(r.getPopularityScore());
+        }
+    }
+
+    private static void readList(DataInputStream in, List<Rental> rentals) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_RENTALS_PER_LIST) throw new IOException("Bad list size " + count);
+        for (int i = 0; i < count; i++) {
+            Rental r = new Rental();
+            r.setId(readString(in));
+            r.setTitle(readString(in));
+            r.setLocation(readString(in));
+            double price = in.readDouble();
+            r.setPrice(Double.isNaN(price) ? null : price);
+            String thumbnail = readString(in);
+            String card = readString(in);
+            if (thumbnail != null) r.setThumbnailUrls(Collections.singletonList(thumbnail));
+            if (card != null) r.setCardImageUrls(Collections.singletonList(card));
+            r.setViewCount(in.readInt());
+            r.setFavoriteCount(in.readInt());
+            r.setPopularityScore(in.readDouble());
+            rentals.add(r);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,143 @@
+package com.khstay.myapplication.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes picked photos, downsamples them and re-encodes them as WebP
+ * before upload. Runs on its own small thread pool; never call on the main thread.
+ */
+public class ImageResizer {
+
+    private static final int WEBP_QUALITY = 80;
+
+    // Two workers: enough to overlap decode and encode without holding many full-size bitmaps
+    private static final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private ImageResizer() {}
+
+    public static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Encode one WebP per requested width from a single decode, sampled for the
+     * largest width. Images narrower than a width are not upscaled. Variants are
+     * encoded and returned in the order the widths are given.
+     */
+    public static List<byte[]> encodeVariants(Context context, Uri uri, int... widths) throws IOException {
+        int maxWidth = 0;
+        for (int width : widths) maxWidth = Math.max(maxWidth, width);
+
+        Bitmap source = decodeSampled(context.getContentResolver(), uri, maxWidth);
+        try {
+            List<byte[]> variants = new ArrayList<>(widths.length);
+            for (int width : widths) {
+                Bitmap scaled = scaleToWidth(source, width);
+                try {
+                    variants.add(compressWebp(scaled));
+                } finally {
+                    if (scaled != source) scaled.recycle();
+                }
+            }
+            return variants;
+        } finally {
+            source.recycle();
+        }
+    }
+
+    /**
+     * Decode with the largest power-of-two sample size that keeps the image
+     * at least targetWidth wide, then apply the EXIF rotation.
+     */
+    private static Bitmap decodeSampled(ContentResolver resolver, Uri uri, int targetWidth) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image: " + uri);
+        }
+
+        int orientation = readOrientation(resolver, uri);
+        boolean swapped = orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270;
+        // Width after rotation is what ends up on screen
+        int displayWidth = swapped ? bounds.outHeight : bounds.outWidth;
+
+        int sampleSize = 1;
+        while (displayWidth / (sampleSize * 2) >= targetWidth) {
+            sampleSize *= 2;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Unable to decode image: " + uri);
+        }
+
+        return rotate(bitmap, orientation);
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return ExifInterface.ORIENTATION_NORMAL;
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static Bitmap rotate(Bitmap bitmap, int orientation) {
+        int degrees;
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90: degrees = 90; break;
+            case ExifInterface.ORIENTATION_ROTATE_180: degrees = 180; break;
+            case ExifInterface.ORIENTATION_ROTATE_270: degrees = 270; break;
+            default: return bitmap;
+        }
+
+        Matrix matrix = new Matrix();
+        matrix.postRotate(degrees);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) bitmap.recycle();
+        return rotated;
+    }
+
+    private static Bitmap scaleToWidth(Bitmap source, int width) {
+        if (source.getWidth() <= width) return source;
+        int height = Math.round(source.getHeight() * (width / (float) source.getWidth()));
+        return Bitmap.createScaledBitmap(source, width, Math.max(height, 1), true);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static byte[] compressWebp(Bitmap bitmap) {
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(format, WEBP_QUALITY, out);
+        return out.toByteArray();
+    }
+}
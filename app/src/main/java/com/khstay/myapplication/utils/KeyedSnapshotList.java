@@ -0,0 +1,204 @@
+package com.khstay.myapplication.utils;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.BatchingListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ordered mirror of a snapshot listener's query result, kept in query order.
+ * Document changes are applied at the old/new indices Firestore reports, so a
+ * snapshot costs one list edit per change instead of a scan per change, and
+ * the resulting row updates are reported as coalesced ranges.
+ *
+ * The parser may return null for documents the screen should not show; they
+ * keep their place in query order but get no row. While any are hidden, mapping
+ * a query index to a row position takes a scan, so keep such documents rare.
+ */
+public class KeyedSnapshotList<T> {
+
+    public interface Parser<T> {
+        @Nullable
+        T parse(DocumentSnapshot document);
+    }
+
+    private final Parser<T> parser;
+    @Nullable
+    private final DiffUtil.ItemCallback<T> itemCallback;
+
+    // Every document id of the query, in query order (Firestore's index space)
+    private final List<String> keys = new ArrayList<>();
+    // Shown items, in query order (the adapter's position space)
+    private final List<T> items = new ArrayList<>();
+    private final Set<String> hidden = new HashSet<>();
+
+    public KeyedSnapshotList(Parser<T> parser) {
+        this(parser, null);
+    }
+
+    /**
+     * With an item callback, a modified document whose contents are the same
+     * produces no update, and a partial change carries the callback's payload.
+     */
+    public KeyedSnapshotList(Parser<T> parser, @Nullable DiffUtil.ItemCallback<T> itemCallback) {
+        this.parser = parser;
+        this.itemCallback = itemCallback;
+    }
+
+    /**
+     * Apply the document changes of one snapshot. Updates go to the callback,
+     * if any, after the list has changed, with adjacent rows merged into ranges.
+     */
+    public void apply(QuerySnapshot snapshot, @Nullable ListUpdateCallback callback) {
+        BatchingListUpdateCallback updates = new BatchingListUpdateCallback(
+                callback != null ? callback : NO_UPDATES);
+
+        // Firestore indices assume every earlier change of the snapshot is already applied
+        for (DocumentChange dc : snapshot.getDocumentChanges()) {
+            switch (dc.getType()) {
+                case ADDED:
+                    applyAdded(dc, updates);
+                    break;
+                case MODIFIED:
+                    applyModified(dc, updates);
+                    break;
+                case REMOVED:
+                    applyRemoved(dc, updates);
+                    break;
+            }
+        }
+        updates.dispatchLastEvent();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public T get(int position) {
+        return items.get(position);
+    }
+
+    /**
+     * Live read-only view of the shown items, for adapters that bind from this list
+     */
+    public List<T> items() {
+        return Collections.unmodifiableList(items);
+    }
+
+    private void applyAdded(DocumentChange dc, ListUpdateCallback updates) {
+        String id = dc.getDocument().getId();
+        int index = dc.getNewIndex();
+        keys.add(index, id);
+
+        T item = parser.parse(dc.getDocument());
+        if (item == null) {
+            hidden.add(id);
+            return;
+        }
+        int position = positionOf(index);
+        items.add(position, item);
+        updates.onInserted(position, 1);
+    }
+
+    private void applyModified(DocumentChange dc, ListUpdateCallback updates) {
+        String id = dc.getDocument().getId();
+        int oldIndex = dc.getOldIndex();
+        int newIndex = dc.getNewIndex();
+
+        boolean wasShown = !hidden.contains(id);
+        int oldPosition = wasShown ? positionOf(oldIndex) : -1;
+        if (oldIndex != newIndex) {
+            keys.remove(oldIndex);
+            keys.add(newIndex, id);
+        }
+
+        T item = parser.parse(dc.getDocument());
+        if (item == null) {
+            hidden.add(id);
+        } else {
+            hidden.remove(id);
+        }
+
+        if (item == null) {
+            if (wasShown) {
+                items.remove(oldPosition);
+                updates.onRemoved(oldPosition, 1);
+            }
+            return;
+        }
+
+        int newPosition = positionOf(newIndex);
+        if (!wasShown) {
+            items.add(newPosition, item);
+            updates.onInserted(newPosition, 1);
+            return;
+        }
+
+        T oldItem;
+        if (oldPosition == newPosition) {
+            oldItem = items.set(newPosition, item);
+        } else {
+            oldItem = items.remove(oldPosition);
+            items.add(newPosition, item);
+            updates.onMoved(oldPosition, newPosition);
+        }
+
+        if (itemCallback == null) {
+            updates.onChanged(newPosition, 1, null);
+        } else if (!itemCallback.areContentsTheSame(oldItem, item)) {
+            updates.onChanged(newPosition, 1, itemCallback.getChangePayload(oldItem, item));
+        }
+    }
+
+    private void applyRemoved(DocumentChange dc, ListUpdateCallback updates) {
+        String id = dc.getDocument().getId();
+        int index = dc.getOldIndex();
+
+        boolean wasShown = !hidden.remove(id);
+        int position = wasShown ? positionOf(index) : -1;
+        keys.remove(index);
+
+        if (wasShown) {
+            items.remove(position);
+            updates.onRemoved(position, 1);
+        }
+    }
+
+    // Query index -> adapter position; only hidden documents before it make them differ
+    private int positionOf(int index) {
+        if (hidden.isEmpty()) return index;
+        int hiddenBefore = 0;
+        for (int i = 0; i < index; i++) {
+            if (hidden.contains(keys.get(i))) hiddenBefore++;
+        }
+        return index - hiddenBefore;
+    }
+
+    private static final ListUpdateCallback NO_UPDATES = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {}
+
+        @Override
+        public void onRemoved(int position, int count) {}
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {}
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {}
+    };
+}
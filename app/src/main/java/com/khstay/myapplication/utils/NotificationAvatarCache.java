@@ -0,0 +1,109 @@
+package com.khstay.myapplication.utils;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sender avatars for notifications, decoded once per user at large-icon size
+ * and shared by every notification from that user. A load that misses the
+ * caller's time budget keeps running, so the next notification from the same
+ * sender finds it ready.
+ */
+public final class NotificationAvatarCache {
+
+    private static final String TAG = "NotificationAvatars";
+    private static final int MAX_AVATARS = 32;
+
+    private static final LruCache<String, Avatar> avatars = new LruCache<>(MAX_AVATARS);
+    // Loads in flight by user id, including ones that ran past a budget
+    private static final Map<String, Avatar> loading = new HashMap<>();
+
+    private static class Avatar {
+        final String url;
+        @Nullable final Bitmap bitmap;
+        @Nullable final FutureTarget<Bitmap> future;
+
+        Avatar(String url, @Nullable Bitmap bitmap, @Nullable FutureTarget<Bitmap> future) {
+            this.url = url;
+            this.bitmap = bitmap;
+            this.future = future;
+        }
+    }
+
+    private NotificationAvatarCache() {}
+
+    /**
+     * Circle-cropped avatar of userId, waiting at most budgetMs for it to load.
+     * Returns null when it is not ready in time or fails; the notification
+     * should then go out without it.
+     */
+    @Nullable
+    @WorkerThread
+    public static Bitmap get(Context context, String userId, String url, long budgetMs) {
+        FutureTarget<Bitmap> future;
+        synchronized (NotificationAvatarCache.class) {
+            Avatar cached = avatars.get(userId);
+            if (cached != null && cached.url.equals(url)) return cached.bitmap;
+            future = startLoad(context, userId, url);
+        }
+
+        try {
+            Bitmap bitmap = future.get(budgetMs, TimeUnit.MILLISECONDS);
+            synchronized (NotificationAvatarCache.class) {
+                avatars.put(userId, new Avatar(url, bitmap, null));
+                finishLoad(userId, future);
+            }
+            return bitmap;
+        } catch (TimeoutException e) {
+            Log.d(TAG, "Avatar for " + userId + " not ready within " + budgetMs + " ms");
+            return null;
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Avatar load failed for " + userId, e);
+            synchronized (NotificationAvatarCache.class) {
+                finishLoad(userId, future);
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Reuses a load already running for the same picture
+    private static FutureTarget<Bitmap> startLoad(Context context, String userId, String url) {
+        Avatar current = loading.get(userId);
+        if (current != null && current.url.equals(url)) return current.future;
+
+        Resources res = context.getResources();
+        int width = res.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = res.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+
+        FutureTarget<Bitmap> future = Glide.with(context.getApplicationContext())
+                .asBitmap()
+                .load(url)
+                .circleCrop()
+                .submit(width, height);
+        loading.put(userId, new Avatar(url, null, future));
+        return future;
+    }
+
+    private static void finishLoad(String userId, FutureTarget<Bitmap> future) {
+        Avatar current = loading.get(userId);
+        if (current != null && current.future == future) loading.remove(userId);
+    }
+}
@@ -1,166 +1,177 @@
 package com.khstay.myapplication.utils;
 
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
- * Helper class to calculate and update popularity scores
- * Formula: Score = (views × 1.0) + (favorites × 3.0) + (bookings × 5.0)
+ * Records popularity events (views, favorites, bookings) for rentals.
+ *
+ * Events are buffered per rental and flushed together in one WriteBatch, either
+ * after FLUSH_DELAY_MS or when the app goes to the background. Deltas go to a random
+ * shard under rental_houses/{id}/popularity_shards so hot listings don't contend on
+ * one document; the aggregatePopularity Cloud Function folds the shards into the
+ * rental's counters and time-decayed popularityScore.
+ *
+ * The stored score is log2 of the decayed activity plus the half-lives since a
+ * fixed epoch, so it only ranks; use activityOf() for anything shown to users.
  */
 public class PopularityScoreHelper {
 
     private static final String TAG = "PopularityScoreHelper";
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
 
-    // Weight factors for popularity calculation
-    private static final double VIEW_WEIGHT = 1.0;
-    private static final double FAVORITE_WEIGHT = 3.0;
-    private static final double BOOKING_WEIGHT = 5.0;
+    // Spreads writes for one rental over several documents; the aggregator reads whatever shards exist
+    private static final int SHARD_COUNT = 10;
 
-    /**
-     * Calculate popularity score from counts
-     */
-    public static double calculateScore(int views, int favorites, int bookings) {
-        return (views * VIEW_WEIGHT) +
-                (favorites * FAVORITE_WEIGHT) +
-                (bookings * BOOKING_WEIGHT);
-    }
+    // How long events are coalesced before they are written
+    private static final long FLUSH_DELAY_MS = 15_000;
+    // Firestore limit on writes in a single batch
+    private static final int MAX_BATCH_WRITES = 500;
+
+    // Must match POPULARITY_HALF_LIFE_MS and POPULARITY_EPOCH_MS in functions/index.js
+    private static final long HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final long EPOCH_MS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    // rentalId -> pending deltas, in first-touched order
+    private static final Map<String, PendingCounts> pending = new LinkedHashMap<>();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Runnable flushRunnable = PopularityScoreHelper::flush;
+    private static boolean flushScheduled = false;
 
     /**
-     * Increment view count and update popularity score
+     * Record a view; written with the next flush
      */
     public static void incrementViewCount(String rentalId) {
-        db.collection("rental_houses")
-                .document(rentalId)
-                .update("viewCount", FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "View count incremented for: " + rentalId);
-                    recalculateScore(rentalId);
-                })
-                .addOnFailureListener(e -> {
-                    // If field doesn't exist, create it
-                    Log.w(TAG, "Creating viewCount field for: " + rentalId);
-                    db.collection("rental_houses")
-                            .document(rentalId)
-                            .update("viewCount", 1)
-                            .addOnSuccessListener(v -> recalculateScore(rentalId))
-                            .addOnFailureListener(err ->
-                                    Log.e(TAG, "Failed to create viewCount", err));
-                });
+        record(rentalId, 1, 0, 0);
     }
 
     /**
-     * Increment favorite count and update popularity score
+     * Record a favorite; written with the next flush
      */
     public static void incrementFavoriteCount(String rentalId) {
-        db.collection("rental_houses")
-                .document(rentalId)
-                .update("favoriteCount", FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Favorite count incremented for: " + rentalId);
-                    recalculateScore(rentalId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Creating favoriteCount field for: " + rentalId);
-                    db.collection("rental_houses")
-                            .document(rentalId)
-                            .update("favoriteCount", 1)
-                            .addOnSuccessListener(v -> recalculateScore(rentalId))
-                            .addOnFailureListener(err ->
-                                    Log.e(TAG, "Failed to create favoriteCount", err));
-                });
+        record(rentalId, 0, 1, 0);
     }
 
     /**
-     * Decrement favorite count and update popularity score
+     * Record an un-favorite; written with the next flush
      */
     public static void decrementFavoriteCount(String rentalId) {
-        db.collection("rental_houses")
-                .document(rentalId)
-                .update("favoriteCount", FieldValue.increment(-1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Favorite count decremented for: " + rentalId);
-                    recalculateScore(rentalId);
-                })
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "Failed to decrement favoriteCount", e));
+        record(rentalId, 0, -1, 0);
     }
 
     /**
-     * Increment booking count and update popularity score
+     * Add a booking delta to the caller's transaction instead of the buffer,
+     * so it commits atomically with the booking change that caused it
      */
-    public static void incrementBookingCount(String rentalId) {
-        db.collection("rental_houses")
-                .document(rentalId)
-                .update("bookingCount", FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Booking count incremented for: " + rentalId);
-                    recalculateScore(rentalId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Creating bookingCount field for: " + rentalId);
-                    db.collection("rental_houses")
-                            .document(rentalId)
-                            .update("bookingCount", 1)
-                            .addOnSuccessListener(v -> recalculateScore(rentalId))
-                            .addOnFailureListener(err ->
-                                    Log.e(TAG, "Failed to create bookingCount", err));
-                });
+    public static void addBookingDelta(Transaction transaction, String rentalId, int delta) {
+        if (rentalId == null || delta == 0) return;
+        PendingCounts counts = new PendingCounts();
+        counts.bookings = delta;
+        transaction.set(randomShard(rentalId), counts.toUpdates(), SetOptions.merge());
     }
 
     /**
-     * Recalculate and update popularity score for a rental
+     * Decayed weighted activity (views 1x, favorites 3x, bookings 5x) a stored
+     * popularityScore stands for right now; 0 for a rental without activity
      */
-    public static void recalculateScore(String rentalId) {
-        db.collection("rental_houses")
-                .document(rentalId)
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (!doc.exists()) return;
-
-                    // Get current counts (default to 0 if null)
-                    Long viewsLong = doc.getLong("viewCount");
-                    Long favoritesLong = doc.getLong("favoriteCount");
-                    Long bookingsLong = doc.getLong("bookingCount");
-
-                    int views = viewsLong != null ? viewsLong.intValue() : 0;
-                    int favorites = favoritesLong != null ? favoritesLong.intValue() : 0;
-                    int bookings = bookingsLong != null ? bookingsLong.intValue() : 0;
-
-                    // Calculate new score
-                    double score = calculateScore(views, favorites, bookings);
-
-                    // Update score in Firestore
-                    db.collection("rental_houses")
-                            .document(rentalId)
-                            .update("popularityScore", score)
-                            .addOnSuccessListener(aVoid ->
-                                    Log.d(TAG, String.format(
-                                            "Score updated for %s: %.2f (v:%d f:%d b:%d)",
-                                            rentalId, score, views, favorites, bookings)))
-                            .addOnFailureListener(e ->
-                                    Log.e(TAG, "Failed to update score", e));
-                })
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "Failed to fetch rental for score calculation", e));
+    public static double activityOf(double popularityScore) {
+        if (popularityScore <= 0) return 0;
+        double halfLivesSinceEpoch = (System.currentTimeMillis() - EPOCH_MS) / (double) HALF_LIFE_MS;
+        return Math.pow(2, popularityScore - halfLivesSinceEpoch);
+    }
+
+    private static synchronized void record(String rentalId, int views, int favorites, int bookings) {
+        if (rentalId == null || rentalId.isEmpty()) return;
+
+        PendingCounts counts = pending.get(rentalId);
+        if (counts == null) {
+            counts = new PendingCounts();
+            pending.put(rentalId, counts);
+        }
+        counts.views += views;
+        counts.favorites += favorites;
+        counts.bookings += bookings;
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
     }
 
     /**
-     * Initialize scores for all rentals (run once for existing data)
+     * Write all buffered deltas now. Called by the timer and when the app is backgrounded.
      */
-    public static void initializeAllScores() {
-        db.collection("rental_houses")
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int count = 0;
-                    for (var doc : querySnapshot.getDocuments()) {
-                        recalculateScore(doc.getId());
-                        count++;
-                    }
-                    Log.d(TAG, "Initialized scores for " + count + " rentals");
-                })
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "Failed to initialize scores", e));
+    public static void flush() {
+        Map<String, PendingCounts> toWrite;
+        synchronized (PopularityScoreHelper.class) {
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            toWrite = new LinkedHashMap<>();
+            for (Map.Entry<String, PendingCounts> entry : pending.entrySet()) {
+                // e.g. favorite then unfavorite inside one window cancels out
+                if (!entry.getValue().isZero()) toWrite.put(entry.getKey(), entry.getValue());
+            }
+            pending.clear();
+        }
+        if (toWrite.isEmpty()) return;
+
+        List<Map.Entry<String, PendingCounts>> entries = new ArrayList<>(toWrite.entrySet());
+        for (int start = 0; start < entries.size(); start += MAX_BATCH_WRITES) {
+            List<Map.Entry<String, PendingCounts>> chunk =
+                    entries.subList(start, Math.min(start + MAX_BATCH_WRITES, entries.size()));
+
+            WriteBatch batch = db.batch();
+            for (Map.Entry<String, PendingCounts> entry : chunk) {
+                batch.set(randomShard(entry.getKey()), entry.getValue().toUpdates(), SetOptions.merge());
+            }
+
+            batch.commit()
+                    .addOnSuccessListener(aVoid ->
+                            Log.d(TAG, "Flushed popularity deltas for " + chunk.size() + " rentals"))
+                    .addOnFailureListener(e ->
+                            Log.e(TAG, "Failed to flush popularity deltas", e));
+        }
+    }
+
+    private static DocumentReference randomShard(String rentalId) {
+        return db.collection("rental_houses")
+                .document(rentalId)
+                .collection("popularity_shards")
+                .document(String.valueOf(ThreadLocalRandom.current().nextInt(SHARD_COUNT)));
+    }
+
+    private static class PendingCounts {
+        int views;
+        int favorites;
+        int bookings;
+
+        boolean isZero() {
+            return views == 0 && favorites == 0 && bookings == 0;
+        }
+
+        Map<String, Object> toUpdates() {
+            Map<String, Object> updates = new HashMap<>();
+            if (views != 0) updates.put("viewCount", FieldValue.increment(views));
+            if (favorites != 0) updates.put("favoriteCount", FieldValue.increment(favorites));
+            if (bookings != 0) updates.put("bookingCount", FieldValue.increment(bookings));
+            updates.put("updatedAt", FieldValue.serverTimestamp());
+            return updates;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.khstay.myapplication.utils;
+
+/**
+ * RecyclerView stable ids derived from Firestore document ids.
+ * 64-bit FNV-1a, so collisions between the ids of one list are practically impossible
+ * (String.hashCode's 32 bits are not enough for that).
+ */
+public class StableIds {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StableIds() {}
+
+    public static long of(String documentId) {
+        if (documentId == null) return 0;
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < documentId.length(); i++) {
+            hash ^= documentId.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
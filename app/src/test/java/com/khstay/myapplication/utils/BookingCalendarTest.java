@@ -0,0 +1,95 @@
+package com.khstay.myapplication.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class BookingCalendarTest {
+
+    private static Date phnomPenh(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(BookingCalendar.ZONE);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTime();
+    }
+
+    private static Date utc(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTime();
+    }
+
+    @Test
+    public void nightsByMonth_splitsAtMonthBoundary() {
+        Map<String, List<String>> nights = BookingCalendar.nightsByMonth(
+                phnomPenh(2025, Calendar.JANUARY, 30, 14), phnomPenh(2025, Calendar.FEBRUARY, 2, 11));
+
+        assertEquals(Arrays.asList("2025-01", "2025-02"), Arrays.asList(nights.keySet().toArray()));
+        assertEquals(Arrays.asList("30", "31"), nights.get("2025-01"));
+        assertEquals(Arrays.asList("01"), nights.get("2025-02"));
+    }
+
+    @Test
+    public void nightsByMonth_spansYearAndLeapDay() {
+        Map<String, List<String>> nights = BookingCalendar.nightsByMonth(
+                phnomPenh(2023, Calendar.DECEMBER, 31, 12), phnomPenh(2024, Calendar.MARCH, 1, 12));
+
+        assertEquals(Arrays.asList("31"), nights.get("2023-12"));
+        assertEquals(31, nights.get("2024-01").size());
+        assertEquals(29, nights.get("2024-02").size());
+        assertEquals("29", nights.get("2024-02").get(28));
+        assertFalse(nights.containsKey("2024-03"));
+    }
+
+    @Test
+    public void nightsByMonth_bucketsInPhnomPenhTime() {
+        // 18:00 UTC on Jan 31 is already 01:00 on Feb 1 in Phnom Penh (UTC+7)
+        Map<String, List<String>> nights = BookingCalendar.nightsByMonth(
+                utc(2025, Calendar.JANUARY, 31, 18), utc(2025, Calendar.FEBRUARY, 2, 18));
+
+        assertFalse(nights.containsKey("2025-01"));
+        assertEquals(Arrays.asList("01", "02"), nights.get("2025-02"));
+    }
+
+    @Test
+    public void nightsByMonth_emptyWhenCheckOutNotAfterCheckIn() {
+        Date day = phnomPenh(2025, Calendar.MAY, 10, 8);
+        assertTrue(BookingCalendar.nightsByMonth(day, phnomPenh(2025, Calendar.MAY, 10, 20)).isEmpty());
+        assertTrue(BookingCalendar.nightsByMonth(day, phnomPenh(2025, Calendar.MAY, 9, 12)).isEmpty());
+    }
+
+    @Test
+    public void nightsByMonth_acceptsStayOfMaxNights() {
+        Date checkIn = phnomPenh(2025, Calendar.JANUARY, 1, 12);
+        Date checkOut = new Date(checkIn.getTime() + BookingCalendar.MAX_NIGHTS * BookingCalendar.DAY_MS);
+
+        int total = 0;
+        for (List<String> days : BookingCalendar.nightsByMonth(checkIn, checkOut).values()) {
+            total += days.size();
+        }
+        assertEquals(BookingCalendar.MAX_NIGHTS, total);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nightsByMonth_rejectsStayOverMaxNights() {
+        Date checkIn = phnomPenh(2025, Calendar.JANUARY, 1, 12);
+        Date checkOut = new Date(checkIn.getTime() + (BookingCalendar.MAX_NIGHTS + 1) * BookingCalendar.DAY_MS);
+        BookingCalendar.nightsByMonth(checkIn, checkOut);
+    }
+
+    @Test
+    public void nightCount_countsCalendarDaysNotHours() {
+        assertEquals(1, BookingCalendar.nightCount(
+                phnomPenh(2025, Calendar.JUNE, 1, 23), phnomPenh(2025, Calendar.JUNE, 2, 1)));
+        assertEquals(0, BookingCalendar.nightCount(
+                phnomPenh(2025, Calendar.JUNE, 1, 1), phnomPenh(2025, Calendar.JUNE, 1, 23)));
+    }
+}
@@ -1,8 +1,10 @@
 
-const functions = require('firebase-functions');
+const { onSchedule } = require('firebase-functions/v2/scheduler');
+const { onDocumentCreated, onDocumentUpdated } = require('firebase-functions/v2/firestore');
 const admin = require('firebase-admin');
 const { GoogleAuth } = require('google-auth-library');
 const axios = require('axios');
+const https = require('https');
 
 admin.initializeApp();
 const db = admin.firestore();
@@ -15,8 +17,11 @@ const auth = new GoogleAuth({
   scopes: ['https://www.googleapis.com/auth/firebase.messaging'],
 });
 
-/** Build DATA-ONLY message payload */
-function buildDataOnlyMessage(token, { title, body, type = 'generic', data = {}, targetUid }) {
+/**
+ * Build DATA-ONLY message payload. With a collapseKey, FCM keeps only the
+ * newest of the messages still waiting for an offline device.
+ */
+function buildDataOnlyMessage(token, { title, body, type = 'generic', data = {}, targetUid, collapseKey }) {
   return {
     message: {
       token,
@@ -27,99 +32,693 @@ function buildDataOnlyMessage(token, { title, body, type = 'generic', data = {},
         ...(data || {}),
         targetUid: targetUid || '',
       },
-      android: { priority: 'high' },
+      android: { priority: 'high', ...(collapseKey ? { collapse_key: collapseKey } : {}) },
     },
   };
 }
 
-exports.sendNotification = functions.https.onRequest(async (req, res) => {
-  if (req.method !== 'POST') return res.status(405).json({ error: 'Method not allowed' });
+const FCM_SEND_URL = `https://fcm.googleapis.com/v1/projects/${PROJECT_ID}/messages:send`;
+const FCM_CONCURRENCY = 10; // sends in flight per invocation
+const ACCESS_TOKEN_REFRESH_MARGIN_MS = 5 * 60 * 1000;
+
+// Module scope, so a warm instance keeps its sockets to FCM open between invocations
+const fcmHttp = axios.create({
+  httpsAgent: new https.Agent({ keepAlive: true, maxSockets: FCM_CONCURRENCY }),
+  timeout: 10000,
+});
+
+let cachedAccessToken = null; // { token, expiresAt }
+let accessTokenRefresh = null;
+
+/** OAuth token for FCM, refreshed shortly before it expires; concurrent callers share one refresh */
+async function getFcmAccessToken() {
+  if (cachedAccessToken && cachedAccessToken.expiresAt - ACCESS_TOKEN_REFRESH_MARGIN_MS > Date.now()) {
+    return cachedAccessToken.token;
+  }
+  if (!accessTokenRefresh) {
+    accessTokenRefresh = (async () => {
+      const client = await auth.getClient();
+      const { token } = await client.getAccessToken();
+      const expiresAt = (client.credentials && client.credentials.expiry_date) || Date.now() + 30 * 60 * 1000;
+      cachedAccessToken = { token, expiresAt };
+      return token;
+    })().finally(() => {
+      accessTokenRefresh = null;
+    });
+  }
+  return accessTokenRefresh;
+}
+
+/** Runs fn over items with at most `limit` calls pending; results keep the input order */
+async function mapWithConcurrency(items, limit, fn) {
+  const results = new Array(items.length);
+  let next = 0;
+  const worker = async () => {
+    while (next < items.length) {
+      const i = next++;
+      results[i] = await fn(items[i], i);
+    }
+  };
+  await Promise.all(Array.from({ length: Math.min(limit, items.length) }, worker));
+  return results;
+}
+
+async function getAllDocs(refs) {
+  return refs.length ? db.getAll(...refs) : [];
+}
+
+// Devices whose token has not been re-registered for this long are treated as gone
+const TOKEN_STALE_MS = 60 * 24 * 60 * 60 * 1000;
+
+/** Devices registered on a user doc: fcmTokens (token -> lastSeen), plus the pre-registry fcmToken field */
+function registeredDevices(userDoc) {
+  const registry = userDoc.get('fcmTokens') || {};
+  const devices = Object.keys(registry).map((token) => ({ token, lastSeen: registry[token] }));
+  const legacy = userDoc.get('fcmToken');
+  if (legacy && !registry[legacy]) devices.push({ token: legacy, legacy: true });
+  return devices;
+}
+
+/**
+ * Resolves each target's device tokens in at most two batched reads: the target
+ * users, then the owners (tokens/{token}.uid) of the tokens registered on them.
+ * Registered tokens that went stale or now belong to another user are returned in
+ * `prune` instead of being used.
+ */
+async function resolveTargets(targets) {
+  const userIds = [...new Set(targets.filter((t) => t.targetUserId).map((t) => t.targetUserId))];
+  const userDocs = await getAllDocs(userIds.map((uid) => db.collection('users').doc(uid)));
+
+  const users = new Map(userDocs.map((doc) => [doc.id, doc]));
+  const devicesByUser = new Map(userDocs.filter((doc) => doc.exists).map((doc) => [doc.id, registeredDevices(doc)]));
+
+  const registeredTokens = [...new Set([...devicesByUser.values()]
+    .flatMap((devices) => devices.map((device) => device.token)))];
+  const tokenOwners = new Map((await getAllDocs(registeredTokens.map((token) => db.collection('tokens').doc(token))))
+    .map((doc) => [doc.id, doc.exists ? doc.get('uid') : null]));
+
+  const nowMs = Date.now();
+  const prune = [];
+
+  const resolved = targets.map((target) => {
+    const user = users.get(target.targetUserId);
+    if (!user || !user.exists) return { ...target, reason: 'NOT_FOUND' };
+
+    const uid = target.targetUserId;
+    const devices = devicesByUser.get(uid).filter((device) => {
+      const ownerUid = tokenOwners.get(device.token);
+      if (ownerUid && ownerUid !== uid) {
+        // The device signed in to another account since
+        prune.push({ uid, ...device, ownedByOther: true });
+        return false;
+      }
+      if (device.lastSeen && nowMs - device.lastSeen.toMillis() > TOKEN_STALE_MS) {
+        prune.push({ uid, ...device });
+        return false;
+      }
+      return true;
+    });
+    return { ...target, devices, resolvedUid: uid };
+  });
+
+  return { resolved, prune };
+}
+
+/** FCM's answer for a token that will never work again */
+function isDeadTokenError(status, details) {
+  if (status === 404) return true;
+  const error = details && details.error;
+  if (!error) return false;
+  const codes = (error.details || []).map((d) => d.errorCode);
+  if (codes.includes('UNREGISTERED')) return true;
+  return codes.includes('INVALID_ARGUMENT') && /registration token/i.test(error.message || '');
+}
+
+async function sendFcm(target, device) {
+  const accessToken = await getFcmAccessToken();
+  const bodyJson = buildDataOnlyMessage(device.token, {
+    title: target.title,
+    body: target.body,
+    type: target.type,
+    data: target.data,
+    targetUid: target.resolvedUid || '',
+    collapseKey: target.collapseKey,
+  });
+
+  try {
+    const rsp = await fcmHttp.post(FCM_SEND_URL, bodyJson, {
+      headers: { Authorization: `Bearer ${accessToken}`, 'Content-Type': 'application/json' },
+    });
+    return { delivered: true, fcmResponse: rsp.data };
+  } catch (err) {
+    const status = err && err.response ? err.response.status : 0;
+    if (status === 401) cachedAccessToken = null;
+    const details = (err && err.response && err.response.data) ? err.response.data : err.message;
+    if (isDeadTokenError(status, details)) return { delivered: false, reason: 'FCM_ERROR', details, dead: true };
+    console.error('FCM v1 error:', details);
+    // Even if FCM fails, the in-app notification is already written
+    return { delivered: false, reason: 'FCM_ERROR', details };
+  }
+}
+
+/**
+ * Removes dead tokens from their user's registry, and their tokens/{token} entry
+ * unless another user owns it now. Best effort: a failure only costs a wasted send later.
+ */
+async function pruneTokens(entries) {
+  const seen = new Set();
+  const groups = [];
+  for (const entry of entries) {
+    const key = `${entry.uid}|${entry.token}`;
+    if (!entry.uid || seen.has(key)) continue;
+    seen.add(key);
+
+    const group = [{
+      ref: db.collection('users').doc(entry.uid),
+      type: 'deleteField',
+      field: entry.legacy ? ['fcmToken'] : ['fcmTokens', entry.token],
+    }];
+    if (!entry.ownedByOther) group.push({ ref: db.collection('tokens').doc(entry.token), type: 'delete' });
+    groups.push(group);
+  }
+  if (!groups.length) return;
 
   try {
-    const { targetUserId, token, title, body, type, data } = req.body || {};
-    if (!title || !body) return res.status(400).json({ error: 'Missing required fields: title, body' });
-
-    // Resolve token by UID if token param not provided
-    let fcmToken = token || null;
-    let resolvedUid = targetUserId || null;
-
-    if (!fcmToken && targetUserId) {
-      const userDoc = await db.collection('users').doc(targetUserId).get();
-      if (!userDoc.exists) {
-        // Still create in-app notif for non-existing user doc? Usually no.
-        return res.status(404).json({ error: 'Target user not found' });
+    await commitGroupsInBatches(groups);
+    console.log('[pruneTokens] pruned=', groups.length);
+  } catch (err) {
+    console.error('Token pruning failed:', err);
+  }
+}
+
+/** In-app notification in the shape NotificationActivity lists (createdAt) and binds (message, timestamp) */
+function inAppNotification(target) {
+  const now = admin.firestore.FieldValue.serverTimestamp();
+  return {
+    receiverId: target.resolvedUid,
+    ...(target.senderId ? { senderId: target.senderId } : {}),
+    title: target.title,
+    message: target.body,
+    type: target.type,
+    data: target.data,
+    createdAt: now,
+    timestamp: now,
+    read: false,
+  };
+}
+
+const ALREADY_EXISTS = 6; // gRPC status of create() on a document that exists
+
+/**
+ * Writes the in-app notifications of resolved targets. A target with a
+ * notificationId is created under that id, one create() each (in a batch an
+ * existing one would fail the others); when it already exists the target is
+ * marked duplicate, so a redelivered trigger event pushes nothing twice.
+ */
+async function writeInAppNotifications(targets) {
+  const ready = targets.filter((t) => !t.reason && t.resolvedUid);
+  const notifications = (t) => db.collection('users').doc(t.resolvedUid).collection('notifications');
+
+  await Promise.all([
+    commitGroupsInBatches(ready
+      .filter((t) => !t.notificationId)
+      .map((t) => [{ ref: notifications(t).doc(), type: 'set', data: inAppNotification(t) }])),
+    mapWithConcurrency(ready.filter((t) => t.notificationId), FCM_CONCURRENCY, async (t) => {
+      try {
+        await notifications(t).doc(t.notificationId).create(inAppNotification(t));
+      } catch (err) {
+        if (err.code !== ALREADY_EXISTS) throw err;
+        console.log('[writeInAppNotifications] already delivered:', t.notificationId);
+        t.reason = 'DUPLICATE';
       }
-      fcmToken = userDoc.get('fcmToken') || null;
-    }
+    }),
+  ]);
+}
+
+/**
+ * The one place notifications are produced: resolves the targets
+ * ({ targetUserId, title, body, type, data, senderId?, collapseKey?, notificationId? }),
+ * writes their in-app notifications, then pushes with bounded concurrency.
+ * Resolves to one result per target, in order.
+ */
+async function deliverNotifications(requested) {
+  const { resolved, prune } = await resolveTargets(requested);
+
+  // ✅ Always write in-app notifications first (Admin SDK bypasses client rules)
+  await writeInAppNotifications(resolved);
+
+  // Every device of every target is one send; the concurrency bound is over all of them
+  const sends = resolved.flatMap((t, i) => (t.reason ? [] : t.devices.map((device) => ({ i, t, device }))));
+  const sent = await mapWithConcurrency(sends, FCM_CONCURRENCY, ({ t, device }) => sendFcm(t, device));
+
+  const byTarget = resolved.map(() => []);
+  sends.forEach((send, k) => {
+    byTarget[send.i].push(sent[k]);
+    if (sent[k].dead) prune.push({ uid: send.t.resolvedUid, ...send.device });
+  });
+  await pruneTokens(prune);
+
+  return resolved.map((t, i) => {
+    const base = { targetUserId: t.targetUserId };
+    if (t.reason) return { ...base, delivered: false, reason: t.reason };
+    const results = byTarget[i];
+    if (!results.length) return { ...base, delivered: false, reason: 'NO_TOKEN' };
+
+    const ok = results.find((r) => r.delivered);
+    const devices = { devices: results.length, deliveredDevices: results.filter((r) => r.delivered).length };
+    if (ok) return { ...base, ...devices, delivered: true, fcmResponse: ok.fcmResponse };
+    return { ...base, ...devices, delivered: false, reason: 'FCM_ERROR', details: results[0].details };
+  });
+}
+
+/* ------------------------------------------------------------------ */
+/* Notification triggers                                              */
+/* ------------------------------------------------------------------ */
+
+// Clients only write the booking or message; the in-app notification and the
+// push for it are produced here, off the sender's phone. Events can be delivered
+// more than once, so each notification is keyed by the event id.
+
+const BOOKING_STATUS_NOTIFICATIONS = {
+  approved: { title: 'Booking Approved! 🎉', type: 'booking_approved', text: (t) => `Your booking for ${t} has been approved!` },
+  rejected: { title: 'Booking Update', type: 'booking_rejected', text: (t) => `Your booking for ${t} was not approved.` },
+};
+
+exports.onBookingCreated = onDocumentCreated('bookings/{bookingId}', async (event) => {
+  const booking = event.data && event.data.data();
+  if (!booking || !booking.ownerId) return;
+
+  await deliverNotifications([{
+    targetUserId: booking.ownerId,
+    senderId: booking.userId || null,
+    title: 'New Booking Request',
+    body: `${booking.guestName || 'A guest'} wants to book your property: ${booking.rentalTitle || ''}`,
+    type: 'booking_request',
+    data: { bookingId: event.params.bookingId, rentalId: booking.rentalId || '' },
+    notificationId: event.id,
+  }]);
+});
+
+exports.onBookingStatusChanged = onDocumentUpdated('bookings/{bookingId}', async (event) => {
+  const before = event.data.before.data();
+  const after = event.data.after.data();
+  if (!before || !after || before.status === after.status) return;
+
+  const rentalTitle = after.rentalTitle || '';
+  const data = { bookingId: event.params.bookingId, rentalId: after.rentalId || '' };
+  let target;
+
+  if (after.status === 'cancelled') {
+    // The guest cancelled; tell the owner
+    target = {
+      targetUserId: after.ownerId,
+      senderId: after.userId || null,
+      title: 'Booking Cancelled',
+      body: `${after.guestName || 'A guest'} cancelled their booking for ${rentalTitle}`,
+      type: 'booking_cancelled',
+    };
+  } else {
+    const known = BOOKING_STATUS_NOTIFICATIONS[after.status];
+    target = {
+      targetUserId: after.userId,
+      senderId: after.ownerId || null,
+      title: known ? known.title : 'Booking Status Update',
+      body: known ? known.text(rentalTitle) : `Your booking for ${rentalTitle} status has changed to: ${after.status}`,
+      type: known ? known.type : 'booking_status_changed',
+    };
+  }
+  if (!target.targetUserId) return;
+
+  await deliverNotifications([{ ...target, data, notificationId: event.id }]);
+});
+
+// A burst of messages produces one push per receiver and conversation: the first
+// message is pushed right away, later ones within CHAT_PUSH_WINDOW_MS are only
+// counted, and the next push after the window reports them all ("N new messages").
+const CHAT_PUSH_WINDOW_MS = 30 * 1000;
 
-    // Try reverse mapping for safety (tokens/{token}.uid)
-    let ownerUid = null;
-    if (fcmToken) {
-      const tokenDoc = await db.collection('tokens').doc(fcmToken).get();
-      ownerUid = tokenDoc.exists ? tokenDoc.get('uid') : null;
+/**
+ * Counts the message in conversations/{id}/push_pending/{receiverId}. Resolves to
+ * the number of messages the push for it should report, or 0 when it is held back
+ * for a later push. A redelivered event gets the same answer as the first delivery.
+ */
+async function claimChatPush(conversationId, receiverId, eventId) {
+  const ref = db.collection('conversations').doc(conversationId).collection('push_pending').doc(receiverId);
+  return db.runTransaction(async (tx) => {
+    const doc = await tx.get(ref);
+    const state = doc.exists ? doc.data() : {};
+    if (state.eventId === eventId) return state.reported || 0;
+
+    const now = Date.now();
+    const count = (state.count || 0) + 1;
+    const reported = now - (state.lastPushedAt || 0) >= CHAT_PUSH_WINDOW_MS ? count : 0;
+    tx.set(ref, reported
+      ? { count: 0, lastPushedAt: now, eventId, reported }
+      : { count, lastPushedAt: state.lastPushedAt, eventId, reported });
+    return reported;
+  });
+}
+
+exports.onMessageCreated = onDocumentCreated('conversations/{conversationId}/messages/{messageId}', async (event) => {
+  const message = event.data && event.data.data();
+  if (!message || !message.receiverId || !message.senderId) return;
+
+  const { conversationId } = event.params;
+  const reported = await claimChatPush(conversationId, message.receiverId, event.id);
+  if (!reported) return;
+
+  const sender = await db.collection('users').doc(message.senderId).get();
+  const senderName = (sender.exists && sender.get('displayName')) || 'User';
+  const senderPhoto = (sender.exists && sender.get('photoUrl')) || '';
+  const text = message.message || '';
+  const excerpt = text.length > 100 ? `${text.substring(0, 100)}...` : text;
+
+  await deliverNotifications([{
+    targetUserId: message.receiverId,
+    senderId: message.senderId,
+    title: `New message from ${senderName}`,
+    body: reported > 1 ? `${reported} new messages` : excerpt,
+    type: 'chat',
+    data: { otherUserId: message.senderId, otherUserName: senderName, otherUserPhoto: senderPhoto },
+    // A device that was offline gets only the newest message of each conversation
+    collapseKey: conversationId,
+    notificationId: event.id,
+  }]);
+});
+
+/* ------------------------------------------------------------------ */
+/* Popularity aggregation                                             */
+/* ------------------------------------------------------------------ */
+
+// Clients increment rental_houses/{id}/popularity_shards/{n}; this job folds the
+// shard deltas into the rental's counters and popularityScore, so
+// RentalService.getPopularRentals() just reads pre-ranked documents.
+//
+// popularityScore is log2 of the decayed activity plus the half-lives elapsed since
+// POPULARITY_EPOCH_MS. Every score decays at the same rate, so that offset keeps the
+// order of stored scores equal to the order of decayed ones at any moment: only
+// rentals with new activity are written, and nothing is rewritten just to decay.
+const POPULARITY_WEIGHTS = { viewCount: 1, favoriteCount: 3, bookingCount: 5 };
+const POPULARITY_HALF_LIFE_MS = 7 * 24 * 60 * 60 * 1000; // activity counts half as much after a week
+const POPULARITY_EPOCH_MS = Date.UTC(2024, 0, 1); // stored scores are relative to it; never change it
+const MIN_POPULARITY_SCORE = 0.01; // decayed activity below this is snapped to a score of 0
+const POPULARITY_SCORE_VERSION = 2; // 1: linear score decayed by every run
+const MAX_BATCH_WRITES = 500;
+const POPULARITY_META_DOC = db.collection('meta').doc('popularity');
+const DELETE_FIELD = admin.firestore.FieldValue.delete();
+
+/**
+ * Commits groups of writes in WriteBatches of at most MAX_BATCH_WRITES.
+ * Each group is [{ ref, type: 'set' | 'merge' | 'update' | 'delete', data }] (or { ref, type: 'deleteField', field: [...path] })
+ * and always lands in a single batch, so a rental's score update and the shard decrements it consumed commit together.
+ */
+async function commitGroupsInBatches(groups) {
+  let batch = db.batch();
+  let writes = 0;
+  let committed = 0;
+
+  for (const group of groups) {
+    if (writes > 0 && writes + group.length > MAX_BATCH_WRITES) {
+      await batch.commit();
+      committed += writes;
+      batch = db.batch();
+      writes = 0;
+    }
+    for (const op of group) {
+      if (op.type === 'delete') batch.delete(op.ref);
+      else if (op.type === 'set') batch.set(op.ref, op.data);
+      else if (op.type === 'merge') batch.set(op.ref, op.data, { merge: true });
+      else if (op.type === 'deleteField') batch.update(op.ref, new admin.firestore.FieldPath(...op.field), DELETE_FIELD);
+      else batch.update(op.ref, op.data);
     }
-    if (!resolvedUid && ownerUid) resolvedUid = ownerUid;
+    writes += group.length;
+  }
+  if (writes > 0) {
+    await batch.commit();
+    committed += writes;
+  }
+  return committed;
+}
+
+/** Half-lives since POPULARITY_EPOCH_MS: the offset of a score stored at nowMs */
+function popularityOffset(nowMs) {
+  return (nowMs - POPULARITY_EPOCH_MS) / POPULARITY_HALF_LIFE_MS;
+}
+
+/** Decayed activity a stored score stands for at nowMs */
+function activityAt(score, nowMs) {
+  return score ? Math.pow(2, score - popularityOffset(nowMs)) : 0;
+}
+
+/** Score to store for the given decayed activity at nowMs */
+function scoreFor(activity, nowMs) {
+  if (activity < MIN_POPULARITY_SCORE) return 0;
+  return Math.log2(activity) + popularityOffset(nowMs);
+}
+
+/**
+ * One-off conversion of version 1 scores (linear, decayed from popularityUpdatedAt).
+ * Scans every scored rental once; later runs only read rentals with new activity.
+ */
+async function migrateLinearScores(nowMs) {
+  const snap = await db.collection('rental_houses').where('popularityScore', '>', 0).get();
+  const groups = snap.docs.map((doc) => {
+    const updated = doc.get('popularityUpdatedAt');
+    const elapsed = updated ? Math.max(0, nowMs - updated.toMillis()) : 0;
+    const activity = doc.get('popularityScore') * Math.pow(0.5, elapsed / POPULARITY_HALF_LIFE_MS);
+    return [{
+      ref: doc.ref,
+      type: 'update',
+      data: { popularityScore: scoreFor(activity, nowMs), popularityUpdatedAt: DELETE_FIELD },
+    }];
+  });
+  const writes = await commitGroupsInBatches(groups);
+  console.log('[aggregatePopularity] migrated scores=', writes);
+}
+
+exports.aggregatePopularity = onSchedule('every 60 minutes', async () => {
+  const runStartedAt = admin.firestore.Timestamp.now();
+  const nowMs = runStartedAt.toMillis();
+
+  const meta = await POPULARITY_META_DOC.get();
+  const lastRunAt = meta.exists ? meta.get('lastRunAt') : null;
+  if (!meta.exists || meta.get('scoreVersion') !== POPULARITY_SCORE_VERSION) {
+    await migrateLinearScores(nowMs);
+    await POPULARITY_META_DOC.set({ scoreVersion: POPULARITY_SCORE_VERSION }, { merge: true });
+  }
+
+  // 1) Shards touched since the previous run (needs a collection-group index on updatedAt)
+  let shardQuery = db.collectionGroup('popularity_shards');
+  if (lastRunAt) shardQuery = shardQuery.where('updatedAt', '>=', lastRunAt);
+  const shardSnap = await shardQuery.get();
 
-    // If both exist but mismatch, refuse (prevents misrouting)
-    if (ownerUid && targetUserId && ownerUid !== targetUserId) {
-      console.error('Token ownership mismatch: token belongs to', ownerUid, 'not', targetUserId);
-      return res.status(409).json({ error: 'Token belongs to another user; refusing to send' });
+  const shardsByRental = new Map();
+  shardSnap.forEach((shard) => {
+    const rentalRef = shard.ref.parent.parent;
+    if (!rentalRef) return;
+    if (!shardsByRental.has(rentalRef.id)) shardsByRental.set(rentalRef.id, []);
+    shardsByRental.get(rentalRef.id).push(shard);
+  });
+
+  // 2) Only the rentals those shards belong to
+  const rentalRefs = [...shardsByRental.keys()].map((id) => db.collection('rental_houses').doc(id));
+  const rentalDocs = [];
+  for (let i = 0; i < rentalRefs.length; i += MAX_BATCH_WRITES) {
+    rentalDocs.push(...await getAllDocs(rentalRefs.slice(i, i + MAX_BATCH_WRITES)));
+  }
+
+  // 3) One write group per rental: counters + score, plus the shard decrements
+  const groups = [];
+  for (const rental of rentalDocs) {
+    const shards = shardsByRental.get(rental.id);
+
+    if (!rental.exists) {
+      // Rental was deleted; drop its orphaned shards
+      groups.push(shards.map((shard) => ({ ref: shard.ref, type: 'delete' })));
+      continue;
     }
 
-    // ✅ Always write in-app notification first (Admin SDK bypasses client rules)
-    if (resolvedUid) {
-      await db.collection('users').doc(resolvedUid).collection('notifications').add({
-        title,
-        body,
-        type: type || 'generic',
-        data: data || {},
-        createdAt: admin.firestore.FieldValue.serverTimestamp(),
-        read: false,
-      });
+    const group = [];
+    const totals = { viewCount: 0, favoriteCount: 0, bookingCount: 0 };
+    for (const shard of shards) {
+      const consumed = {};
+      for (const field of Object.keys(totals)) {
+        const value = shard.get(field) || 0;
+        if (value !== 0) {
+          totals[field] += value;
+          // Subtract what was read instead of zeroing, so increments racing this run survive
+          consumed[field] = admin.firestore.FieldValue.increment(-value);
+        }
+      }
+      if (Object.keys(consumed).length) group.push({ ref: shard.ref, type: 'update', data: consumed });
     }
+    // e.g. a shard the previous run already emptied (the updatedAt bound is inclusive)
+    if (!group.length) continue;
 
-    // If no token, return 200 with delivered=false (in-app only)
-    if (!fcmToken) {
-      return res.status(200).json({
-        ok: true,
-        delivered: false,
-        reason: 'NO_TOKEN',
-        note: 'In-app notification created; user has no FCM token',
-      });
+    let activity = activityAt(rental.get('popularityScore'), nowMs);
+    for (const field of Object.keys(totals)) activity += totals[field] * POPULARITY_WEIGHTS[field];
+
+    const rentalUpdate = { popularityScore: scoreFor(activity, nowMs) };
+    for (const field of Object.keys(totals)) {
+      if (totals[field] !== 0) rentalUpdate[field] = admin.firestore.FieldValue.increment(totals[field]);
     }
 
-    // Send FCM (data-only)
-    const client = await auth.getClient();
-    const accessToken = await client.getAccessToken();
-    const url = `https://fcm.googleapis.com/v1/projects/${PROJECT_ID}/messages:send`;
-
-    const bodyJson = buildDataOnlyMessage(fcmToken, {
-      title,
-      body,
-      type: type || 'generic',
-      data,
-      targetUid: resolvedUid || targetUserId || ownerUid || '',
-    });
+    group.unshift({ ref: rental.ref, type: 'update', data: rentalUpdate });
+    groups.push(group);
+  }
+
+  const writes = await commitGroupsInBatches(groups);
+  await POPULARITY_META_DOC.set({ lastRunAt: runStartedAt }, { merge: true });
+
+  console.log('[aggregatePopularity] rentals=', groups.length,
+    'dirtyRentals=', shardsByRental.size, 'writes=', writes);
+});
+
+/* ------------------------------------------------------------------ */
+/* One-off rental backfills                                           */
+/* ------------------------------------------------------------------ */
+
+// Fields the app writes on create and edit, but only since they were introduced.
+// Each backfill fills them in once for older documents, records its marker in
+// meta/rentals, and from then on only reads that marker. Safe to delete once run.
+const RENTALS_META_DOC = db.collection('meta').doc('rentals');
+
+/** Runs once per marker: hands every document of the collection to fn, a page at a time */
+async function backfillOnce(marker, collection, fn) {
+  const meta = await RENTALS_META_DOC.get();
+  if (meta.exists && meta.get(marker)) return null;
+
+  let updated = 0;
+  let last = null;
+  for (;;) {
+    let page = db.collection(collection).orderBy(admin.firestore.FieldPath.documentId()).limit(MAX_BATCH_WRITES);
+    if (last) page = page.startAfter(last);
+    const snap = await page.get();
+    if (snap.empty) break;
+    last = snap.docs[snap.docs.length - 1];
+    updated += await fn(snap.docs);
+  }
 
-    console.log('[sendNotification] targetUserId=', targetUserId);
-    console.log('[sendNotification] resolvedUid=', resolvedUid);
-    console.log('[sendNotification] token=', fcmToken);
-
-    let delivered = true;
-    try {
-      const rsp = await axios.post(url, bodyJson, {
-        headers: { Authorization: `Bearer ${accessToken.token}`, 'Content-Type': 'application/json' },
-      });
-      return res.status(200).json({ ok: true, delivered, fcmResponse: rsp.data });
-    } catch (err) {
-      const details = (err && err.response && err.response.data) ? err.response.data : err.message;
-      console.error('FCM v1 error:', details);
-      // Even if FCM fails (UNREGISTERED/INVALID_ARGUMENT), we already wrote in-app
-      delivered = false;
-      return res.status(200).json({ ok: true, delivered, reason: 'FCM_ERROR', details });
+  await RENTALS_META_DOC.set({ [marker]: true }, { merge: true });
+  return updated;
+}
+
+// Search filters by commune in Firestore, which only matches rentals that have the
+// field; derived the same way as Rental.communeFromLocation()
+function communeFromLocation(location) {
+  if (!location) return null;
+  const commune = String(location).split(',')[0].trim();
+  return commune || null;
+}
+
+exports.backfillRentalCommunes = onSchedule('every 24 hours', async () => {
+  const updated = await backfillOnce('communeBackfilled', 'rental_houses', (docs) => commitGroupsInBatches(docs
+    .filter((doc) => !doc.get('commune') && communeFromLocation(doc.get('location')))
+    .map((doc) => [{ ref: doc.ref, type: 'update', data: { commune: communeFromLocation(doc.get('location')) } }])));
+  if (updated !== null) console.log('[backfillRentalCommunes] updated=', updated);
+});
+
+// Nearby queries range over the geohash field; same encoding and precision as GeoHashUtils.encode()
+const GEOHASH_BASE32 = '0123456789bcdefghjkmnpqrstuvwxyz';
+const GEOHASH_PRECISION = 10;
+
+function encodeGeohash(latitude, longitude, precision = GEOHASH_PRECISION) {
+  let minLat = -90;
+  let maxLat = 90;
+  let minLng = -180;
+  let maxLng = 180;
+  let hash = '';
+  let evenBit = true;
+  let bit = 0;
+  let ch = 0;
+
+  while (hash.length < precision) {
+    if (evenBit) {
+      const mid = (minLng + maxLng) / 2;
+      if (longitude >= mid) { ch = (ch << 1) | 1; minLng = mid; } else { ch <<= 1; maxLng = mid; }
+    } else {
+      const mid = (minLat + maxLat) / 2;
+      if (latitude >= mid) { ch = (ch << 1) | 1; minLat = mid; } else { ch <<= 1; maxLat = mid; }
     }
-  } catch (err) {
-    console.error('sendNotification fatal error:', err);
-    return res.status(500).json({ error: 'Failed to send notification', details: err.message });
+    evenBit = !evenBit;
+
+    if (++bit === 5) {
+      hash += GEOHASH_BASE32[ch];
+      bit = 0;
+      ch = 0;
+    }
+  }
+  return hash;
+}
+
+exports.backfillRentalGeohashes = onSchedule('every 24 hours', async () => {
+  const updated = await backfillOnce('geohashBackfilled', 'rental_houses', (docs) => commitGroupsInBatches(docs
+    .filter((doc) => !doc.get('geohash')
+      && typeof doc.get('latitude') === 'number' && typeof doc.get('longitude') === 'number')
+    .map((doc) => [{
+      ref: doc.ref,
+      type: 'update',
+      data: { geohash: encodeGeohash(doc.get('latitude'), doc.get('longitude')) },
+    }])));
+  if (updated !== null) console.log('[backfillRentalGeohashes] updated=', updated);
+});
+
+// Bookings made before the availability index never claimed their nights, so their
+// dates still look free. Mirrors BookingCalendar: nights are bucketed by day in
+// Asia/Phnom_Penh (UTC+7, no DST), check-in included and check-out excluded.
+const BOOKING_ZONE_OFFSET_MS = 7 * 60 * 60 * 1000;
+const DAY_MS = 24 * 60 * 60 * 1000;
+const MAX_NIGHTS = 366;
+const HOLDS_DATES = new Set([undefined, null, 'pending', 'approved']);
+
+function bookingEpochDay(timestamp) {
+  return Math.floor((timestamp.toMillis() + BOOKING_ZONE_OFFSET_MS) / DAY_MS);
+}
+
+/** [month ('yyyy-MM'), day ('dd')] of every night of the stay, or [] when it is not indexable */
+function bookingNights(checkIn, checkOut) {
+  if (!checkIn || !checkOut || typeof checkIn.toMillis !== 'function' || typeof checkOut.toMillis !== 'function') return [];
+  const first = bookingEpochDay(checkIn);
+  const end = bookingEpochDay(checkOut);
+  if (end - first > MAX_NIGHTS) return [];
+
+  const nights = [];
+  for (let day = first; day < end; day++) {
+    const iso = new Date(day * DAY_MS).toISOString();
+    nights.push([iso.slice(0, 7), iso.slice(8, 10)]);
   }
+  return nights;
+}
+
+exports.backfillBookingAvailability = onSchedule('every 24 hours', async () => {
+  const updated = await backfillOnce('availabilityBackfilled', 'bookings', async (docs) => {
+    // rentalId/month -> { ref, days }, merged across the page's bookings
+    const months = new Map();
+    for (const doc of docs) {
+      const rentalId = doc.get('rentalId');
+      if (!rentalId || !HOLDS_DATES.has(doc.get('status'))) continue;
+
+      for (const [month, day] of bookingNights(doc.get('checkInDate'), doc.get('checkOutDate'))) {
+        const key = `${rentalId}/${month}`;
+        if (!months.has(key)) {
+          const ref = db.collection('rental_houses').doc(rentalId).collection('availability').doc(month);
+          months.set(key, { ref, days: {} });
+        }
+        const { days } = months.get(key);
+        if (!days[day]) days[day] = doc.id; // overlapping legacy bookings: the first one keeps the night
+      }
+    }
+
+    // Never take over a night that is already claimed
+    const entries = [...months.values()];
+    const existing = await getAllDocs(entries.map((entry) => entry.ref));
+    const groups = [];
+    entries.forEach((entry, i) => {
+      const claimed = (existing[i].exists && existing[i].get('days')) || {};
+      const days = Object.fromEntries(Object.entries(entry.days).filter(([day]) => !claimed[day]));
+      if (Object.keys(days).length) groups.push([{ ref: entry.ref, type: 'merge', data: { days } }]);
+    });
+    return commitGroupsInBatches(groups);
+  });
+  if (updated !== null) console.log('[backfillBookingAvailability] months=', updated);
 });